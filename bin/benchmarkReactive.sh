@@ -0,0 +1,48 @@
+#! /bin/bash
+# Compares the servlet (rest-book, port 8082) and the reactive (rest-book-reactive, port 8083) flavours of the book API
+# for increasing concurrency levels, on the same requests: book registrations (which wait for rest-number) and book reads.
+#
+# Start rest-number, rest-book and rest-book-reactive, then run:
+#   ./bin/benchmarkReactive.sh
+# The results are appended to benchmark-reactive.csv (flavour,request,concurrency,requests_per_sec,p50_sec,p99_sec).
+# The Numbers API delay (time.to.sleep) is what makes the registrations block: keep it the same for both runs.
+#
+# Requires hey (https://github.com/rakyll/hey). Every run is preceded by a warm-up which is not recorded.
+# The concurrency levels and the duration can be overridden:
+#   CONCURRENCY="10 100 1000" DURATION=60s ./bin/benchmarkReactive.sh
+
+CONCURRENCY=${CONCURRENCY:-"1 10 50 100 200 400 800"}
+DURATION=${DURATION:-30s}
+WARM_UP=${WARM_UP:-10s}
+OUTPUT=${OUTPUT:-benchmark-reactive.csv}
+FLAVOURS=${FLAVOURS:-"servlet=http://127.0.0.1:8082/v1/books reactive=http://127.0.0.1:8083/v1/books"}
+BOOK='{"title":"Practising Quarkus","author":"Antonio Goncalves","yearOfPublication":2020}'
+
+if ! command -v hey > /dev/null; then
+  echo "hey is required: go install github.com/rakyll/hey@latest" >&2
+  exit 1
+fi
+
+if [ ! -f "$OUTPUT" ]; then
+  echo "flavour,request,concurrency,requests_per_sec,p50_sec,p99_sec" > "$OUTPUT"
+fi
+
+run() {
+  local flavour=$1 request=$2 concurrency=$3
+  shift 3
+  report=$(hey -z "$DURATION" -c "$concurrency" -t 60 "$@")
+  rps=$(echo "$report" | awk '/Requests\/sec:/ {print $2}')
+  p50=$(echo "$report" | awk '/ 50% in / {print $3}')
+  p99=$(echo "$report" | awk '/ 99% in / {print $3}')
+  echo "$flavour,$request,$concurrency,$rps,$p50,$p99" | tee -a "$OUTPUT"
+}
+
+for entry in $FLAVOURS; do
+  flavour=${entry%%=*}
+  url=${entry#*=}
+  hey -z "$WARM_UP" -c 10 "$url/count" > /dev/null
+  for concurrency in $CONCURRENCY; do
+    run "$flavour" register "$concurrency" -m POST -T application/json -d "$BOOK" "$url"
+    run "$flavour" random "$concurrency" "$url/random"
+  done
+done
@@ -0,0 +1,40 @@
+#! /bin/bash
+# Measures the throughput and the latency of rest-book and rest-number for increasing concurrency levels.
+#
+# Run it once with platform threads and once with virtual threads, restarting rest-number and rest-book in between:
+#   SPRING_THREADS_VIRTUAL_ENABLED=false ./gradlew :rest-number:bootRun   (and the same for :rest-book:bootRun)
+#   ./bin/benchmarkThreads.sh platform
+#   SPRING_THREADS_VIRTUAL_ENABLED=true ./gradlew :rest-number:bootRun    (and the same for :rest-book:bootRun)
+#   ./bin/benchmarkThreads.sh virtual
+# The results are appended to benchmark-threads.csv (mode,endpoint,concurrency,requests_per_sec,p50_sec,p99_sec).
+#
+# Requires hey (https://github.com/rakyll/hey). Every run is preceded by a warm-up which is not recorded.
+# The endpoints are called directly, without the gateway. The concurrency levels and the duration can be overridden:
+#   CONCURRENCY="10 100 1000" DURATION=60s ./bin/benchmarkThreads.sh virtual
+
+MODE=${1:?"Usage: $0 <platform|virtual>"}
+CONCURRENCY=${CONCURRENCY:-"1 10 50 100 200 400 800"}
+DURATION=${DURATION:-30s}
+WARM_UP=${WARM_UP:-10s}
+OUTPUT=${OUTPUT:-benchmark-threads.csv}
+ENDPOINTS=${ENDPOINTS:-"http://127.0.0.1:8081/v1/isbns http://127.0.0.1:8082/v1/books/count http://127.0.0.1:8082/v1/books/1001"}
+
+if ! command -v hey > /dev/null; then
+  echo "hey is required: go install github.com/rakyll/hey@latest" >&2
+  exit 1
+fi
+
+if [ ! -f "$OUTPUT" ]; then
+  echo "mode,endpoint,concurrency,requests_per_sec,p50_sec,p99_sec" > "$OUTPUT"
+fi
+
+for endpoint in $ENDPOINTS; do
+  hey -z "$WARM_UP" -c 10 "$endpoint" > /dev/null
+  for concurrency in $CONCURRENCY; do
+    report=$(hey -z "$DURATION" -c "$concurrency" -t 60 "$endpoint")
+    rps=$(echo "$report" | awk '/Requests\/sec:/ {print $2}')
+    p50=$(echo "$report" | awk '/ 50% in / {print $3}')
+    p99=$(echo "$report" | awk '/ 99% in / {print $3}')
+    echo "$MODE,$endpoint,$concurrency,$rps,$p50,$p99" | tee -a "$OUTPUT"
+  done
+done
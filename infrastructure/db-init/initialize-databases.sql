@@ -3,3 +3,5 @@
 CREATE DATABASE books_database;
 --GRANT ALL PRIVILEGES ON DATABASE books_database TO book ;
 --GRANT ALL PRIVILEGES ON DATABASE books_database TO bookstore;
+-- used by rest-book-reactive, whose schema is not managed by Hibernate
+CREATE DATABASE books_reactive_database;
@@ -1,12 +1,15 @@
 package info.touret.bookstore.spring;
 
 import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import info.touret.bookstore.spring.book.exception.InvalidCursorException;
 import info.touret.bookstore.spring.book.generated.dto.APIErrorDto;
 import info.touret.bookstore.spring.maintenance.exception.MaintenanceException;
+import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 /**
  * Handles all the exceptions thrown by the application
@@ -26,6 +29,18 @@ public class GlobalExceptionHandler {
         return apiErrorDto;
     }
 
+    /**
+     * Indicates that the request parameters are not valid
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler({InvalidCursorException.class, ConstraintViolationException.class, HandlerMethodValidationException.class})
+    public APIErrorDto badRequest() {
+        APIErrorDto apiErrorDto = new APIErrorDto();
+        apiErrorDto.setCode(HttpStatus.BAD_REQUEST.value());
+        apiErrorDto.setReason("Invalid request");
+        return apiErrorDto;
+    }
+
     /**
      * Indicates there is a timeout
      */
@@ -2,15 +2,19 @@ package info.touret.bookstore.spring.book.controller;
 
 import info.touret.bookstore.spring.book.generated.controller.BooksApi;
 import info.touret.bookstore.spring.book.generated.dto.BookDto;
+import info.touret.bookstore.spring.book.exception.InvalidCursorException;
 import info.touret.bookstore.spring.book.mapper.BookMapper;
 import info.touret.bookstore.spring.book.service.BookService;
 import io.micrometer.core.annotation.Timed;
 import io.micrometer.observation.annotation.Observed;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 
@@ -24,6 +28,10 @@ import java.util.Map;
         contextualName = "book")
 @RestController
 public class BookController implements BooksApi {
+    /**
+     * Number of books per page when only the cursor is provided
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
     private final BookMapper bookMapper;
     private final BookService bookService;
 
@@ -38,9 +46,46 @@ public class BookController implements BooksApi {
         return ResponseEntity.ok(bookMapper.toBookDto(bookService.findRandomBook()));
     }
 
+    /**
+     * Returns all the books or, if the limit or the cursor is set, a page of books.
+     * The pages are fetched using keyset pagination on the ID. The URI of the next page is provided in the <code>Link</code> header.
+     *
+     * @param limit  the maximum number of books per page
+     * @param cursor the opaque cursor provided by the previous page
+     * @return the books
+     */
     @Override
-    public ResponseEntity<List<BookDto>> getAllBooks() {
-        return ResponseEntity.ok(bookMapper.toBookDtos(bookService.findAllBooks()));
+    public ResponseEntity<List<BookDto>> getAllBooks(Integer limit, String cursor) {
+        if (limit == null && cursor == null) {
+            return ResponseEntity.ok(bookMapper.toBookDtos(bookService.findAllBooks()));
+        }
+        var pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        var page = bookService.findBooks(decodeCursor(cursor), pageSize);
+        var response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            var nextPageUri = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("limit", pageSize)
+                    .replaceQueryParam("cursor", encodeCursor(page.getContent().getLast().getId()))
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + nextPageUri + ">; rel=\"next\"");
+        }
+        return response.body(bookMapper.toBookDtos(page.getContent()));
+    }
+
+    private static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeCursor(String cursor) {
+        if (cursor == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor, e);
+        }
     }
 
     /**
@@ -1,6 +1,8 @@
 package info.touret.bookstore.spring.book.repository;
 import info.touret.bookstore.spring.book.entity.Book;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.repository.CrudRepository;
 
 import java.util.List;
@@ -12,4 +14,13 @@ public interface BookRepository extends CrudRepository<Book, Long> {
 
     @Query(value = "select b.id from Book b")
     List<Long> findAllIds();
+
+    /**
+     * Gets a page of books using keyset pagination: the books are read from the primary key index, starting right after the given ID.
+     *
+     * @param id       the ID of the last book of the previous page
+     * @param pageable the page size. The page number must always be 0
+     * @return the books whose ID is greater than the given one, ordered by ID
+     */
+    Slice<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
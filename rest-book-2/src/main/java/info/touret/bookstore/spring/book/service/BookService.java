@@ -11,6 +11,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.client.RestTemplate;
@@ -111,6 +113,17 @@ public class BookService {
         return StreamSupport.stream(bookRepository.findAll().spliterator(), false).toList();
     }
 
+    /**
+     * Finds a page of books ordered by ID
+     *
+     * @param afterId the ID of the last book of the previous page, 0 to get the first page
+     * @param limit   the maximum number of books
+     * @return the page of books
+     */
+    public Slice<Book> findBooks(long afterId, int limit) {
+        return bookRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+    }
+
     public long count() {
         return bookRepository.count();
     }
@@ -0,0 +1,53 @@
+package info.touret.bookstore.spring;
+
+import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import info.touret.bookstore.spring.book.exception.BookVersionMismatchException;
+import info.touret.bookstore.spring.book.exception.InvalidCursorException;
+import info.touret.bookstore.spring.book.generated.dto.APIErrorDto;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Handles all the exceptions thrown by the application
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    /**
+     * Indicates that the request parameters are not valid
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler({InvalidCursorException.class})
+    public APIErrorDto badRequest() {
+        APIErrorDto apiErrorDto = new APIErrorDto();
+        apiErrorDto.setCode(HttpStatus.BAD_REQUEST.value());
+        apiErrorDto.setReason("Invalid request");
+        return apiErrorDto;
+    }
+
+    /**
+     * Indicates that the book has been modified since the client fetched it
+     */
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler({BookVersionMismatchException.class})
+    public APIErrorDto versionMismatch() {
+        APIErrorDto apiErrorDto = new APIErrorDto();
+        apiErrorDto.setCode(HttpStatus.PRECONDITION_FAILED.value());
+        apiErrorDto.setReason("The book has been modified");
+        return apiErrorDto;
+    }
+
+    /**
+     * Indicates there is a timeout
+     */
+    @ResponseStatus(HttpStatus.REQUEST_TIMEOUT)
+    @ExceptionHandler({ApiCallTimeoutException.class})
+    public APIErrorDto timeoutException() {
+        APIErrorDto apiErrorDto = new APIErrorDto();
+        apiErrorDto.setCode(HttpStatus.REQUEST_TIMEOUT.value());
+        apiErrorDto.setReason("A timeout occured");
+        return apiErrorDto;
+    }
+}
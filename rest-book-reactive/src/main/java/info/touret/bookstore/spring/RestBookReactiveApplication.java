@@ -0,0 +1,16 @@
+package info.touret.bookstore.spring;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Main Spring boot class of the reactive flavour of rest-book
+ */
+@SpringBootApplication
+public class RestBookReactiveApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(RestBookReactiveApplication.class, args);
+    }
+
+}
@@ -0,0 +1,52 @@
+package info.touret.bookstore.spring.book;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+
+/**
+ * Book Spring Configuration
+ */
+@Configuration
+public class BookConfiguration {
+
+    @Value("${booknumbers.api.timeout_sec}")
+    private int timeoutInSec;
+
+    /**
+     * Creates the non-blocking HTTP client used for calling the Numbers API. The connections are pooled and kept alive by Reactor Netty.
+     * The response timeout is aligned with <code>booknumbers.api.timeout_sec</code>.
+     *
+     * @return the web client
+     */
+    @Bean
+    public WebClient createWebClient(WebClient.Builder webClientBuilder,
+                                     @Value("${booknumbers.api.client.connect_timeout_ms:1000}") int connectTimeoutInMs) {
+        var httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutInMs)
+                .responseTimeout(Duration.ofSeconds(timeoutInSec));
+        return webClientBuilder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+
+    /**
+     * Creates a circuit breaker customizer applying a timeout specified by the <code>booknumbers.api.timeout_sec</code> property.
+     * This customizer could be reached using this id: <code>slowNumbers</code>
+     *
+     * @return the circuit breaker customizer to apply when calling to numbers api
+     */
+    @Bean
+    public Customizer<ReactiveResilience4JCircuitBreakerFactory> createSlowNumbersAPICallCustomizer() {
+        return factory -> factory.configure(builder -> builder.circuitBreakerConfig(CircuitBreakerConfig.ofDefaults())
+                .timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(timeoutInSec)).build()), "slowNumbers");
+    }
+}
@@ -0,0 +1,239 @@
+package info.touret.bookstore.spring.book.controller;
+
+import info.touret.bookstore.spring.book.dto.BookFilter;
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.exception.BookVersionMismatchException;
+import info.touret.bookstore.spring.book.exception.InvalidCursorException;
+import info.touret.bookstore.spring.book.generated.controller.BooksApi;
+import info.touret.bookstore.spring.book.generated.dto.BookDto;
+import info.touret.bookstore.spring.book.mapper.BookMapper;
+import info.touret.bookstore.spring.book.service.BookService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reactive Book REST API, implementing the same contract as the servlet flavour.
+ * <p>
+ * Only the core operations are implemented: the asynchronous registrations, the batches and the bulk operations are answered with <code>501 Not Implemented</code> by the generated interface.
+ * The books are returned with a strong ETag (their version). When the <code>If-None-Match</code> header matches, a <code>304 Not Modified</code> is returned without serializing the book.
+ * In the <code>summary</code> view, only the ID, the title, the author, the price and the excerpt of the books are serialized.
+ */
+@RestController
+public class BookController implements BooksApi {
+    /**
+     * Number of books per page when only the cursor is provided
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    /**
+     * Value of the <code>view</code> parameter asking for the book summaries
+     */
+    public static final String SUMMARY_VIEW = "summary";
+    private final BookMapper bookMapper;
+    private final BookService bookService;
+
+    public BookController(BookService bookService, BookMapper bookMapper) {
+        this.bookService = bookService;
+        this.bookMapper = bookMapper;
+    }
+
+    @Override
+    public Mono<ResponseEntity<BookDto>> getRandomBook(ServerWebExchange exchange) {
+        return bookService.findRandomBook()
+                .map(book -> ResponseEntity.ok(bookMapper.toBookDto(book)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Returns all the books or, if the limit, the cursor or a filter criterion is set, a page of books.
+     * The pages are fetched using keyset pagination on the ID. The URI of the next page is provided in the <code>Link</code> header.
+     * The books are streamed from the database to the response.
+     *
+     * @param limit         the maximum number of books per page
+     * @param cursor        the opaque cursor provided by the previous page
+     * @param author        the author of the books
+     * @param publishedFrom the books published this year or after
+     * @param publishedTo   the books published this year or before
+     * @param minRank       the lowest rank
+     * @param maxRank       the highest rank
+     * @param minPrice      the lowest price
+     * @param maxPrice      the highest price
+     * @param view          <code>full</code> or <code>summary</code>
+     * @param ifNoneMatch   not supported: the books are always returned
+     * @return the books
+     */
+    @Override
+    public Mono<ResponseEntity<Flux<BookDto>>> getAllBooks(Integer limit, String cursor, String author, Integer publishedFrom, Integer publishedTo,
+                                                           Integer minRank, Integer maxRank, BigDecimal minPrice, BigDecimal maxPrice,
+                                                           String view, String ifNoneMatch, ServerWebExchange exchange) {
+        Function<Book, BookDto> toBookDto = SUMMARY_VIEW.equals(view) ? bookMapper::toBookSummaryDto : bookMapper::toBookDto;
+        var filter = new BookFilter(author, publishedFrom, publishedTo, minRank, maxRank, minPrice, maxPrice);
+        if (limit == null && cursor == null && filter.isEmpty()) {
+            return Mono.just(ResponseEntity.ok(bookService.findAllBooks().map(toBookDto)));
+        }
+        var pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        // One more book is fetched for knowing whether there is a next page
+        return bookService.findBooks(filter, decodeCursor(cursor), pageSize + 1)
+                .collectList()
+                .map(books -> {
+                    var response = ResponseEntity.ok();
+                    var page = books.size() > pageSize ? books.subList(0, pageSize) : books;
+                    if (books.size() > pageSize) {
+                        var nextPageUri = UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                                .replaceQueryParam("limit", pageSize)
+                                .replaceQueryParam("cursor", encodeCursor(page.getLast().getId()))
+                                .build()
+                                .toUriString();
+                        response.header(HttpHeaders.LINK, "<" + nextPageUri + ">; rel=\"next\"");
+                    }
+                    return response.body(Flux.fromIterable(page).map(toBookDto));
+                });
+    }
+
+    private static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeCursor(String cursor) {
+        if (cursor == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Returns the number of books
+     *
+     * @return A Map which will be automatically transformed into a JSON Object
+     */
+    @Override
+    public Mono<ResponseEntity<Map<String, Long>>> count(ServerWebExchange exchange) {
+        return bookService.count().map(count -> ResponseEntity.ok(Map.of("books.count", count)));
+    }
+
+    /**
+     * Returns a book
+     *
+     * @param id          the book ID
+     * @param view        <code>full</code> or <code>summary</code>
+     * @param ifNoneMatch the ETag of the book already fetched
+     * @return the book, or a 304 status if it has not been modified
+     */
+    @Override
+    public Mono<ResponseEntity<BookDto>> getBook(Long id, String view, String ifNoneMatch, ServerWebExchange exchange) {
+        var summary = SUMMARY_VIEW.equals(view);
+        return bookService.findBookById(id)
+                .map(book -> {
+                    var eTag = summary ? "\"" + book.getVersion() + "-" + SUMMARY_VIEW + "\"" : eTag(book);
+                    if (matches(ifNoneMatch, eTag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).<BookDto>build();
+                    }
+                    return ResponseEntity.ok().eTag(eTag).body(summary ? bookMapper.toBookSummaryDto(book) : bookMapper.toBookDto(book));
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    private static String eTag(Book book) {
+        return "\"" + book.getVersion() + "\"";
+    }
+
+    /**
+     * Checks the <code>If-None-Match</code> header using the weak comparison (RFC 9110)
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(value -> value.startsWith("W/") ? value.substring(2) : value)
+                .anyMatch(value -> value.equals("*") || value.equals(eTag));
+    }
+
+    /**
+     * Extracts the version of the book from the <code>If-Match</code> header
+     *
+     * @return the expected version, or null if any version is accepted
+     * @throws BookVersionMismatchException the header is not an ETag provided by this API
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        var value = ifMatch.trim();
+        if (value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            throw new BookVersionMismatchException("Invalid ETag: " + ifMatch);
+        }
+        try {
+            return Long.valueOf(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new BookVersionMismatchException("Invalid ETag: " + ifMatch, e);
+        }
+    }
+
+    /**
+     * Registers a book. The <code>Prefer: respond-async</code> header is ignored: the registration never blocks any thread.
+     *
+     * @param bookDto the book to register
+     * @param prefer  ignored
+     * @return the URI of the created book
+     */
+    @Override
+    public Mono<ResponseEntity<URI>> createBook(Mono<BookDto> bookDto, String prefer, ServerWebExchange exchange) {
+        return bookDto.map(bookMapper::toBook)
+                .flatMap(bookService::registerBook)
+                .map(book -> {
+                    var uri = UriComponentsBuilder.fromUri(exchange.getRequest().getURI()).replaceQuery(null).path("/{id}").buildAndExpand(book.getId()).toUri();
+                    return ResponseEntity.created(uri).<URI>build();
+                });
+    }
+
+    /**
+     * Updates a book. If the <code>If-Match</code> header is set, the book is updated only if it has not been modified since the ETag was fetched.
+     *
+     * @param bookDto the book to update
+     * @param ifMatch the ETag of the book to update
+     * @return the book updated, with its new ETag
+     */
+    @Override
+    public Mono<ResponseEntity<BookDto>> updateBook(Mono<BookDto> bookDto, String ifMatch, ServerWebExchange exchange) {
+        return bookDto.map(bookMapper::toBook)
+                .flatMap(book -> bookService.updateBook(book, expectedVersion(ifMatch)))
+                .map(book -> ResponseEntity.ok().eTag(eTag(book)).body(bookMapper.toBookDto(book)));
+    }
+
+    /**
+     * Returns the excerpt of a book. The description is not read.
+     *
+     * @param id the book ID
+     * @return the excerpt
+     */
+    @Override
+    public Mono<ResponseEntity<String>> getBookExcerpt(Long id, ServerWebExchange exchange) {
+        return bookService.findBookExcerpt(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @Override
+    public Mono<ResponseEntity<Void>> deleteBook(Long id, ServerWebExchange exchange) {
+        return bookService.deleteBook(id).then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+}
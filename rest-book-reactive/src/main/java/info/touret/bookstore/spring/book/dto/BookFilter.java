@@ -0,0 +1,26 @@
+package info.touret.bookstore.spring.book.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Filter criteria of the book reads. A null criterion is ignored, the bounds are inclusive.
+ *
+ * @param author        the author of the books
+ * @param publishedFrom the books published this year or after
+ * @param publishedTo   the books published this year or before
+ * @param minRank       the lowest rank
+ * @param maxRank       the highest rank
+ * @param minPrice      the lowest price
+ * @param maxPrice      the highest price
+ */
+public record BookFilter(String author, Integer publishedFrom, Integer publishedTo, Integer minRank, Integer maxRank, BigDecimal minPrice, BigDecimal maxPrice) {
+
+    /**
+     * No criterion: all the books are selected
+     */
+    public static final BookFilter NONE = new BookFilter(null, null, null, null, null, null, null);
+
+    public boolean isEmpty() {
+        return author == null && publishedFrom == null && publishedTo == null && minRank == null && maxRank == null && minPrice == null && maxPrice == null;
+    }
+}
@@ -0,0 +1,166 @@
+package info.touret.bookstore.spring.book.entity;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+
+/**
+ * Book stored with R2DBC. The other columns are mapped using the default snake case naming strategy.
+ */
+@Table("book")
+public class Book {
+
+    /**
+     * Maximum length of the excerpt
+     */
+    public static final int EXCERPT_LENGTH = 100;
+
+    @NotNull
+    private String title;
+    @Column("isbn_13")
+    private String isbn13;
+    @Column("isbn_10")
+    private String isbn10;
+    private String author;
+    private Integer yearOfPublication;
+    private Integer nbOfPages;
+    @Min(1)
+    @Max(10)
+    private Integer rank;
+    private BigDecimal price;
+    private String smallImageUrl;
+    private String mediumImageUrl;
+    private String description;
+    /**
+     * Beginning of the description, stored in its own short column
+     */
+    private String excerpt;
+    @Id
+    private Long id;
+    /**
+     * Incremented on every update. Used for optimistic locking and for computing the ETags. Null for a new book
+     */
+    @Version
+    private Long version;
+
+    /**
+     * Computes the excerpt from the description. It must be called before every write.
+     */
+    public void computeExcerpt() {
+        this.excerpt = description != null ? description.substring(0, Math.min(description.length(), EXCERPT_LENGTH)) : null;
+    }
+
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getIsbn13() {
+        return isbn13;
+    }
+
+    public void setIsbn13(String isbn13) {
+        this.isbn13 = isbn13;
+    }
+
+    public String getIsbn10() {
+        return isbn10;
+    }
+
+    public void setIsbn10(String isbn10) {
+        this.isbn10 = isbn10;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public Integer getYearOfPublication() {
+        return yearOfPublication;
+    }
+
+    public void setYearOfPublication(Integer yearOfPublication) {
+        this.yearOfPublication = yearOfPublication;
+    }
+
+    public Integer getNbOfPages() {
+        return nbOfPages;
+    }
+
+    public void setNbOfPages(Integer nbOfPages) {
+        this.nbOfPages = nbOfPages;
+    }
+
+    public Integer getRank() {
+        return rank;
+    }
+
+    public void setRank(Integer rank) {
+        this.rank = rank;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public String getSmallImageUrl() {
+        return smallImageUrl;
+    }
+
+    public void setSmallImageUrl(String smallImageUrl) {
+        this.smallImageUrl = smallImageUrl;
+    }
+
+    public String getMediumImageUrl() {
+        return mediumImageUrl;
+    }
+
+    public void setMediumImageUrl(String mediumImageUrl) {
+        this.mediumImageUrl = mediumImageUrl;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,26 @@
+package info.touret.bookstore.spring.book.exception;
+
+/**
+ * Indicates that the book has been modified since the version expected by the client
+ */
+public class BookVersionMismatchException extends RuntimeException {
+    public BookVersionMismatchException() {
+        super();
+    }
+
+    public BookVersionMismatchException(String message) {
+        super(message);
+    }
+
+    public BookVersionMismatchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public BookVersionMismatchException(Throwable cause) {
+        super(cause);
+    }
+
+    protected BookVersionMismatchException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,23 @@
+package info.touret.bookstore.spring.book.mapper;
+
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.generated.dto.BookDto;
+import org.mapstruct.BeanMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper
+public interface BookMapper {
+    @Mapping(target = "version", ignore = true)
+    Book toBook(BookDto bookDto);
+
+    BookDto toBookDto(Book book);
+
+    @BeanMapping(ignoreByDefault = true)
+    @Mapping(target = "id", source = "id")
+    @Mapping(target = "title", source = "title")
+    @Mapping(target = "author", source = "author")
+    @Mapping(target = "price", source = "price")
+    @Mapping(target = "excerpt", source = "excerpt")
+    BookDto toBookSummaryDto(Book book);
+}
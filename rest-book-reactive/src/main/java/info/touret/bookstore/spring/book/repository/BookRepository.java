@@ -0,0 +1,48 @@
+package info.touret.bookstore.spring.book.repository;
+
+import info.touret.bookstore.spring.book.entity.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Book Spring Data R2DBC Repository
+ */
+public interface BookRepository extends ReactiveCrudRepository<Book, Long> {
+
+    /**
+     * Gets a page of books using keyset pagination: the books are read from the primary key index, starting right after the given ID.
+     *
+     * @param id       the ID of the last book of the previous page
+     * @param pageable the page size. The page number must always be 0
+     * @return the books whose ID is greater than the given one, ordered by ID
+     */
+    Flux<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Gets the first book whose ID is greater than or equal to the given one, using the primary key index
+     *
+     * @param id the lowest ID
+     * @return the book
+     */
+    @Query("select * from book where id >= :id order by id limit 1")
+    Mono<Book> findFirstFrom(@Param("id") Long id);
+
+    /**
+     * Gets the excerpt of a book without reading its description
+     *
+     * @param id the book ID
+     * @return the excerpt, empty if the book has no description
+     */
+    @Query("select coalesce(excerpt, '') from book where id = :id")
+    Mono<String> findExcerptById(@Param("id") Long id);
+
+    /**
+     * @return the greatest book ID
+     */
+    @Query("select max(id) from book")
+    Mono<Long> findMaxId();
+}
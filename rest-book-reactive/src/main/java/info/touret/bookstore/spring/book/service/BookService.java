@@ -0,0 +1,175 @@
+package info.touret.bookstore.spring.book.service;
+
+import info.touret.bookstore.spring.book.BookConfiguration;
+import info.touret.bookstore.spring.book.dto.BookFilter;
+import info.touret.bookstore.spring.book.dto.IsbnNumbers;
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import info.touret.bookstore.spring.book.exception.BookVersionMismatchException;
+import info.touret.bookstore.spring.book.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreakerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Book Spring Service. No thread is blocked: the database is reached with R2DBC and the Numbers API with {@link WebClient}.
+ * <p>
+ * Unlike the servlet flavour, the books which cannot be registered because the Numbers API is not reachable are not journaled: the client gets a timeout error.
+ */
+@Service
+public class BookService {
+
+    private final BookRepository bookRepository;
+    private final R2dbcEntityTemplate entityTemplate;
+    private final WebClient webClient;
+    private final ReactiveCircuitBreakerFactory<?, ?> circuitBreakerFactory;
+    private final String isbnServiceURL;
+
+    public BookService(BookRepository bookRepository,
+                       R2dbcEntityTemplate entityTemplate,
+                       WebClient webClient,
+                       @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") ReactiveCircuitBreakerFactory<?, ?> circuitBreakerFactory,
+                       @Value("${booknumbers.api.url}") String isbnServiceURL) {
+        this.bookRepository = bookRepository;
+        this.entityTemplate = entityTemplate;
+        this.webClient = webClient;
+        this.circuitBreakerFactory = circuitBreakerFactory;
+        this.isbnServiceURL = isbnServiceURL;
+    }
+
+    /**
+     * Picks a random ID and returns the first book found from it, using the primary key index
+     *
+     * @return a random book, or an empty value if there is no book
+     */
+    public Mono<Book> findRandomBook() {
+        return bookRepository.findMaxId()
+                .flatMap(maxId -> bookRepository.findFirstFrom(ThreadLocalRandom.current().nextLong(maxId + 1)));
+    }
+
+    public Flux<Book> findAllBooks() {
+        return bookRepository.findAll();
+    }
+
+    /**
+     * Finds a page of books ordered by ID. Only the predicates of the criteria provided are written, so that each one can be served by the index of its column.
+     *
+     * @param filter  the filter criteria
+     * @param afterId the ID of the last book of the previous page, 0 to get the first page
+     * @param limit   the maximum number of books
+     * @return the page of books
+     */
+    public Flux<Book> findBooks(BookFilter filter, long afterId, int limit) {
+        if (filter.isEmpty()) {
+            return bookRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+        }
+        var criteria = afterId > 0 ? Criteria.where("id").greaterThan(afterId) : Criteria.empty();
+        if (filter.author() != null) {
+            criteria = criteria.and("author").is(filter.author());
+        }
+        if (filter.publishedFrom() != null) {
+            criteria = criteria.and("yearOfPublication").greaterThanOrEquals(filter.publishedFrom());
+        }
+        if (filter.publishedTo() != null) {
+            criteria = criteria.and("yearOfPublication").lessThanOrEquals(filter.publishedTo());
+        }
+        if (filter.minRank() != null) {
+            criteria = criteria.and("rank").greaterThanOrEquals(filter.minRank());
+        }
+        if (filter.maxRank() != null) {
+            criteria = criteria.and("rank").lessThanOrEquals(filter.maxRank());
+        }
+        if (filter.minPrice() != null) {
+            criteria = criteria.and("price").greaterThanOrEquals(filter.minPrice());
+        }
+        if (filter.maxPrice() != null) {
+            criteria = criteria.and("price").lessThanOrEquals(filter.maxPrice());
+        }
+        return entityTemplate.select(Book.class)
+                .matching(Query.query(criteria).sort(Sort.by("id")).limit(limit))
+                .all();
+    }
+
+    public Mono<Long> count() {
+        return bookRepository.count();
+    }
+
+    public Mono<Book> findBookById(Long id) {
+        return bookRepository.findById(id);
+    }
+
+    /**
+     * Registers the book. The ISBN numbers are fetched through the <code>slowNumbers</code> circuit breaker.
+     *
+     * @param book book to register
+     * @return the book saved
+     * @throws ApiCallTimeoutException (as an error signal) the Numbers API is not reachable
+     * @see BookConfiguration#createSlowNumbersAPICallCustomizer()
+     */
+    public Mono<Book> registerBook(Book book) {
+        var isbnNumbers = webClient.get()
+                .uri(isbnServiceURL)
+                .retrieve()
+                .bodyToMono(IsbnNumbers.class);
+        return circuitBreakerFactory.create("slowNumbers")
+                .run(isbnNumbers, throwable -> Mono.error(new ApiCallTimeoutException("Numbers not accessible", throwable)))
+                .flatMap(numbers -> {
+                    book.setId(null);
+                    book.setVersion(null);
+                    book.setIsbn13(numbers.getIsbn13());
+                    book.setIsbn10(numbers.getIsbn10());
+                    book.computeExcerpt();
+                    return bookRepository.save(book);
+                });
+    }
+
+    /**
+     * Updates a book. If an expected version is provided, the book is updated only if it has not been modified since (optimistic locking).
+     * Otherwise, the last update wins.
+     *
+     * @param book            the book to update
+     * @param expectedVersion the version of the book known by the client, or null
+     * @return the book updated
+     * @throws BookVersionMismatchException (as an error signal) the book has been modified since the expected version
+     */
+    public Mono<Book> updateBook(Book book, Long expectedVersion) {
+        var currentVersion = book.getId() == null ? Mono.<Optional<Long>>just(Optional.empty()) :
+                bookRepository.findById(book.getId()).map(current -> Optional.of(current.getVersion())).defaultIfEmpty(Optional.empty());
+        return currentVersion.flatMap(version -> {
+                    if (expectedVersion != null && !version.equals(Optional.of(expectedVersion))) {
+                        return Mono.error(new BookVersionMismatchException("The book " + book.getId() + " has been modified or removed"));
+                    }
+                    book.setVersion(version.orElse(null));
+                    book.computeExcerpt();
+                    return bookRepository.save(book);
+                })
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new BookVersionMismatchException("The book " + book.getId() + " has been modified concurrently", e));
+    }
+
+    /**
+     * Finds the excerpt of a book. Only the excerpt column is read.
+     *
+     * @param id the book ID
+     * @return the excerpt, empty if the book has no description
+     */
+    public Mono<String> findBookExcerpt(Long id) {
+        return bookRepository.findExcerptById(id);
+    }
+
+    public Mono<Void> deleteBook(Long id) {
+        return bookRepository.deleteById(id);
+    }
+}
@@ -0,0 +1,26 @@
+create table if not exists book
+(
+    id                  bigint generated by default as identity primary key,
+    version             bigint not null default 0,
+    title               varchar(255) not null,
+    isbn_13             varchar(255),
+    isbn_10             varchar(255),
+    author              varchar(255),
+    year_of_publication integer,
+    nb_of_pages         integer,
+    rank                integer,
+    price               numeric(38, 2),
+    small_image_url     varchar(255),
+    medium_image_url    varchar(255),
+    description         varchar(10000),
+    excerpt             varchar(100)
+);
+
+-- added after the first release of this module
+alter table book add column if not exists excerpt varchar(100);
+
+-- indexes of the filtered book reads
+create index if not exists book_author_idx on book (author, id);
+create index if not exists book_year_of_publication_idx on book (year_of_publication);
+create index if not exists book_rank_idx on book (rank);
+create index if not exists book_price_idx on book (price);
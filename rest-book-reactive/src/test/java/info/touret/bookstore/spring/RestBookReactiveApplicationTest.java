@@ -0,0 +1,14 @@
+package info.touret.bookstore.spring;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+@SuppressWarnings("java:S2699")
+class RestBookReactiveApplicationTest {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
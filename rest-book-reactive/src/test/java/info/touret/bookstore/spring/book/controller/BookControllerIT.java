@@ -0,0 +1,212 @@
+package info.touret.bookstore.spring.book.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import info.touret.bookstore.spring.book.dto.IsbnNumbers;
+import info.touret.bookstore.spring.book.generated.dto.BookDto;
+import io.r2dbc.spi.ConnectionFactory;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_CLASS;
+
+/**
+ * Runs the scenarios of the servlet flavour (<code>OldBookControllerIT</code>) against the reactive one
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@DirtiesContext(classMode = BEFORE_CLASS)
+class BookControllerIT {
+
+    public static final String BOOKS_API_PREFIX = "/v1/books";
+
+    private static MockWebServer mockServer;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeAll
+    static void startMockServer() throws IOException {
+        mockServer = new MockWebServer();
+        mockServer.start();
+    }
+
+    @AfterAll
+    static void stopMockServer() throws IOException {
+        mockServer.shutdown();
+    }
+
+    @DynamicPropertySource
+    static void numbersApiProperties(DynamicPropertyRegistry registry) {
+        registry.add("booknumbers.api.url", () -> mockServer.url("/v1/isbns").toString());
+    }
+
+    @BeforeEach
+    void setUp() {
+        new ResourceDatabasePopulator(new ClassPathResource("books-data.sql")).populate(connectionFactory).block();
+    }
+
+    /**
+     * Makes the numbers API answer once
+     */
+    private void createMockServerStandard() throws Exception {
+        var isbnNumbers = new IsbnNumbers();
+        isbnNumbers.setIsbn10("0123456789");
+        isbnNumbers.setIsbn13("0123456789012");
+        mockServer.enqueue(new MockResponse()
+                .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody(mapper.writeValueAsString(isbnNumbers)));
+    }
+
+    /**
+     * Makes the numbers API answer once, after the timeout
+     */
+    private void createMockServerTimeout() {
+        mockServer.enqueue(new MockResponse()
+                .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody("{}")
+                .setHeadersDelay(3, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void should_get_a_random_book() {
+        var book = webTestClient.get().uri(BOOKS_API_PREFIX + "/random").exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDto.class).returnResult().getResponseBody();
+        assertNotNull(book);
+        assertEquals(100L, book.getId());
+    }
+
+    @Test
+    void should_find_all_books() {
+        webTestClient.get().uri(BOOKS_API_PREFIX).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BookDto.class).hasSize(1);
+    }
+
+    @Test
+    void should_find_books_page_by_page() {
+        webTestClient.get().uri(BOOKS_API_PREFIX + "?limit=1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
+                .expectBodyList(BookDto.class).hasSize(1);
+    }
+
+    @Test
+    void should_reject_an_invalid_cursor() {
+        webTestClient.get().uri(BOOKS_API_PREFIX + "?cursor=@@@").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void should_get_a_count() {
+        var count = webTestClient.get().uri(BOOKS_API_PREFIX + "/count").exchange()
+                .expectStatus().isOk()
+                .expectBody(Map.class).returnResult().getResponseBody();
+        assertNotNull(count);
+        assertEquals(1, count.get("books.count"));
+    }
+
+    @Test
+    void should_find_a_book() {
+        var book = webTestClient.get().uri(BOOKS_API_PREFIX + "/100").exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDto.class).returnResult().getResponseBody();
+        assertNotNull(book);
+        assertEquals(100L, book.getId());
+    }
+
+    @Test
+    void should_find_no_book() {
+        webTestClient.get().uri(BOOKS_API_PREFIX + "/999").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void should_not_return_an_unmodified_book() {
+        var eTag = webTestClient.get().uri(BOOKS_API_PREFIX + "/100").exchange()
+                .expectStatus().isOk()
+                .returnResult(BookDto.class).getResponseHeaders().getETag();
+        assertNotNull(eTag);
+        webTestClient.get().uri(BOOKS_API_PREFIX + "/100").header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void should_register_a_book_successfully() throws Exception {
+        createMockServerStandard();
+        var book = new BookDto();
+        book.setAuthor("George Orwell");
+        book.setTitle("Animal's farm");
+        var uri = webTestClient.post().uri(BOOKS_API_PREFIX).bodyValue(book).exchange()
+                .expectStatus().isCreated()
+                .returnResult(Void.class).getResponseHeaders().getLocation();
+        assertNotNull(uri);
+        assertTrue(uri.getPath().matches(BOOKS_API_PREFIX + "/[0-9]+$"));
+    }
+
+    @Test
+    void should_throw_a_timeout_while_registering() {
+        createMockServerTimeout();
+        var book = new BookDto();
+        book.setAuthor("George Orwell");
+        book.setTitle("Animal's farm");
+        webTestClient.post().uri(BOOKS_API_PREFIX).bodyValue(book).exchange()
+                .expectStatus().isEqualTo(HttpStatus.REQUEST_TIMEOUT);
+    }
+
+    @Test
+    void should_update_book() {
+        var book = new BookDto();
+        book.setId(100L);
+        book.setAuthor("George Orwell");
+        book.setTitle("Animal's farm");
+        webTestClient.put().uri(BOOKS_API_PREFIX).bodyValue(book).exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void should_not_update_a_modified_book() {
+        var book = new BookDto();
+        book.setId(100L);
+        book.setAuthor("George Orwell");
+        book.setTitle("Animal's farm");
+        webTestClient.put().uri(BOOKS_API_PREFIX).header(HttpHeaders.IF_MATCH, "\"999\"").bodyValue(book).exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void should_delete_book() {
+        webTestClient.delete().uri(BOOKS_API_PREFIX + "/100").exchange()
+                .expectStatus().isNoContent();
+        webTestClient.get().uri(BOOKS_API_PREFIX + "/100").exchange()
+                .expectStatus().isNotFound();
+    }
+}
@@ -1,12 +1,22 @@
 package info.touret.bookstore.spring;
 
 import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import info.touret.bookstore.spring.book.exception.BookVersionMismatchException;
+import info.touret.bookstore.spring.book.exception.InvalidBulkOperationException;
+import info.touret.bookstore.spring.book.exception.InvalidCursorException;
+import info.touret.bookstore.spring.book.exception.InvalidETagException;
+import info.touret.bookstore.spring.book.exception.RegistrationQueueFullException;
 import info.touret.bookstore.spring.book.generated.dto.APIErrorDto;
+import info.touret.bookstore.spring.limit.exception.ConcurrencyLimitExceededException;
 import info.touret.bookstore.spring.maintenance.exception.MaintenanceException;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 /**
  * Handles all the exceptions thrown by the application
@@ -26,6 +36,30 @@ public class GlobalExceptionHandler {
         return apiErrorDto;
     }
 
+    /**
+     * Indicates that the request parameters are not valid
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler({InvalidCursorException.class, InvalidETagException.class, InvalidBulkOperationException.class, ConstraintViolationException.class, HandlerMethodValidationException.class})
+    public APIErrorDto badRequest() {
+        APIErrorDto apiErrorDto = new APIErrorDto();
+        apiErrorDto.setCode(HttpStatus.BAD_REQUEST.value());
+        apiErrorDto.setReason("Invalid request");
+        return apiErrorDto;
+    }
+
+    /**
+     * Indicates that the book has been modified since the client fetched it
+     */
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler({BookVersionMismatchException.class})
+    public APIErrorDto versionMismatch() {
+        APIErrorDto apiErrorDto = new APIErrorDto();
+        apiErrorDto.setCode(HttpStatus.PRECONDITION_FAILED.value());
+        apiErrorDto.setReason("The book has been modified");
+        return apiErrorDto;
+    }
+
     /**
      * Indicates there is a timeout
      */
@@ -38,6 +72,31 @@ public class GlobalExceptionHandler {
         return apiErrorDto;
     }
 
+    /**
+     * Indicates that the asynchronous registration queue is full
+     */
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler({RegistrationQueueFullException.class})
+    public APIErrorDto registrationQueueFull(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        APIErrorDto apiErrorDto = new APIErrorDto();
+        apiErrorDto.setCode(HttpStatus.SERVICE_UNAVAILABLE.value());
+        apiErrorDto.setReason("Too many pending registrations");
+        return apiErrorDto;
+    }
+
+    /**
+     * Indicates that too many requests are being processed
+     */
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler({ConcurrencyLimitExceededException.class})
+    public APIErrorDto concurrencyLimitExceeded(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        APIErrorDto apiErrorDto = new APIErrorDto();
+        apiErrorDto.setCode(HttpStatus.SERVICE_UNAVAILABLE.value());
+        apiErrorDto.setReason("Too many requests in progress");
+        return apiErrorDto;
+    }
 
     /**
      * Any other exception
@@ -4,28 +4,52 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
 import io.micrometer.observation.ObservationRegistry;
 import io.micrometer.observation.aop.ObservedAspect;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
 import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
 import org.springframework.cloud.client.circuitbreaker.Customizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 import org.zalando.logbook.Logbook;
+import org.zalando.logbook.core.Conditions;
 import org.zalando.logbook.core.DefaultHttpLogWriter;
 import org.zalando.logbook.core.DefaultSink;
 import org.zalando.logbook.json.JsonHttpLogFormatter;
 import org.zalando.logbook.json.PrettyPrintingJsonBodyFilter;
 
+import java.net.http.HttpClient;
 import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static info.touret.bookstore.spring.book.controller.BookExportController.API_EXPORT_URI;
 
 /**
  * Book Spring Configuration
  */
 @Configuration
+@EnableCaching
+@EnableScheduling
 public class BookConfiguration {
 
     @Value("${booknumbers.api.timeout_sec}")
@@ -37,8 +61,68 @@ public class BookConfiguration {
     }
 
     @Bean
-    public RestTemplate createRestTemplate(RestTemplateBuilder restTemplateBuilder) {
-        return restTemplateBuilder.build();
+    public RestTemplate createRestTemplate(RestTemplateBuilder restTemplateBuilder, ClientHttpRequestFactory numbersApiRequestFactory) {
+        return restTemplateBuilder.requestFactory(() -> numbersApiRequestFactory).build();
+    }
+
+    /**
+     * Creates the HTTP client used for calling the Numbers API. It depends on <code>booknumbers.api.client.mode</code>:
+     * <ul>
+     *     <li><code>simple</code>: a new connection per request (<code>HttpURLConnection</code>)</li>
+     *     <li><code>pooled</code>: Apache HttpClient with a pool of keep-alive connections, limited per route. The pool is exposed with the <code>httpcomponents.httpclient.pool.*</code> metrics</li>
+     *     <li><code>http2</code>: the JDK HTTP client, which multiplexes the requests over HTTP/2 (h2c) connections</li>
+     * </ul>
+     * In every mode, the read timeout is aligned with <code>booknumbers.api.timeout_sec</code>: once the time limiter gives up, the underlying request is aborted as well.
+     *
+     * @return the request factory
+     */
+    @Bean
+    public ClientHttpRequestFactory createNumbersApiRequestFactory(@Value("${booknumbers.api.client.mode:simple}") String mode,
+                                                                   @Value("${booknumbers.api.client.max_connections:200}") int maxConnections,
+                                                                   @Value("${booknumbers.api.client.max_connections_per_route:50}") int maxConnectionsPerRoute,
+                                                                   @Value("${booknumbers.api.client.connect_timeout_ms:1000}") long connectTimeoutInMs,
+                                                                   @Value("${booknumbers.api.client.idle_timeout_sec:30}") long idleTimeoutInSec,
+                                                                   @Value("${booknumbers.api.client.time_to_live_sec:300}") long timeToLiveInSec,
+                                                                   MeterRegistry meterRegistry) {
+        return switch (mode) {
+            case "pooled" -> {
+                var connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnectionsPerRoute)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutInMs))
+                                .setSocketTimeout(Timeout.ofSeconds(timeoutInSec))
+                                .setTimeToLive(TimeValue.ofSeconds(timeToLiveInSec))
+                                .build())
+                        .build();
+                new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "numbers-api").bindTo(meterRegistry);
+                var httpClient = HttpClients.custom()
+                        .setConnectionManager(connectionManager)
+                        .setDefaultRequestConfig(RequestConfig.custom()
+                                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutInMs))
+                                .setResponseTimeout(Timeout.ofSeconds(timeoutInSec))
+                                .build())
+                        .evictExpiredConnections()
+                        .evictIdleConnections(TimeValue.ofSeconds(idleTimeoutInSec))
+                        .build();
+                yield new HttpComponentsClientHttpRequestFactory(httpClient);
+            }
+            case "http2" -> {
+                var httpClient = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_2)
+                        .connectTimeout(Duration.ofMillis(connectTimeoutInMs))
+                        .build();
+                var requestFactory = new JdkClientHttpRequestFactory(httpClient);
+                requestFactory.setReadTimeout(Duration.ofSeconds(timeoutInSec));
+                yield requestFactory;
+            }
+            default -> {
+                var requestFactory = new SimpleClientHttpRequestFactory();
+                requestFactory.setConnectTimeout(Duration.ofMillis(connectTimeoutInMs));
+                requestFactory.setReadTimeout(Duration.ofSeconds(timeoutInSec));
+                yield requestFactory;
+            }
+        };
     }
 
     /**
@@ -57,8 +141,10 @@ public class BookConfiguration {
     /**
      * Creates a circuit breaker customizer applying a timeout specified by the <code>booknumbers.api.timeout_sec</code> property.
      * This customizer could be reached using this id: <code>slowNumbers</code>
+     * This timeout is an upper bound: the time limiter actually applied is the one registered with the timeout computed from the Numbers API latency.
      *
      * @return the circuit breaker customizer to apply when calling to numbers api
+     * @see info.touret.bookstore.spring.book.service.AdaptiveTimeLimiter
      */
     @Bean
     public Customizer<Resilience4JCircuitBreakerFactory> createSlowNumbersAPICallCustomizer() {
@@ -66,10 +152,40 @@ public class BookConfiguration {
                 .timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(timeoutInSec)).build()), "slowNumbers");
     }
 
+    /**
+     * Creates the executor running the calls protected by the circuit breakers (e.g., <code>slowNumbers</code>) when <code>spring.threads.virtual.enabled</code> is set.
+     * Every call gets its own virtual thread: the calls blocked on the Numbers API do not hold any platform thread.
+     *
+     * @return a virtual thread per task executor
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService createCircuitBreakerExecutorService() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Runs the circuit breakers on virtual threads when <code>spring.threads.virtual.enabled</code> is set
+     *
+     * @param circuitBreakerExecutorService the virtual thread per task executor
+     * @return the circuit breaker customizer
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Customizer<Resilience4JCircuitBreakerFactory> createVirtualThreadsCustomizer(ExecutorService circuitBreakerExecutorService) {
+        return factory -> factory.configureExecutorService(circuitBreakerExecutorService);
+    }
+
+    /**
+     * Creates the HTTP logger. The catalog export is excluded: its body would be buffered in memory for being logged.
+     *
+     * @return the logbook instance
+     */
     @Bean
     public Logbook createLogbook() {
         var objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
         return Logbook.builder()
+                .condition(Conditions.exclude(Conditions.requestTo("/**" + API_EXPORT_URI)))
                 .sink(new DefaultSink(new JsonHttpLogFormatter(objectMapper), new DefaultHttpLogWriter()))
                 .bodyFilter(new PrettyPrintingJsonBodyFilter(objectMapper))
                 .build();
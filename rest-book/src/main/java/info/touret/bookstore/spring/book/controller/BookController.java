@@ -1,22 +1,55 @@
 package info.touret.bookstore.spring.book.controller;
 
+import info.touret.bookstore.spring.book.dto.BookBatchItemResult;
+import info.touret.bookstore.spring.book.dto.BookFilter;
+import info.touret.bookstore.spring.book.dto.BookSummary;
+import info.touret.bookstore.spring.book.dto.BulkOperationResult;
+import info.touret.bookstore.spring.book.dto.CatalogVersion;
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.exception.InvalidCursorException;
+import info.touret.bookstore.spring.book.exception.InvalidETagException;
 import info.touret.bookstore.spring.book.generated.controller.BooksApi;
+import info.touret.bookstore.spring.book.generated.dto.BookBatchItemDto;
+import info.touret.bookstore.spring.book.generated.dto.BookBatchResultDto;
+import info.touret.bookstore.spring.book.generated.dto.BookBulkUpdateDto;
 import info.touret.bookstore.spring.book.generated.dto.BookDto;
+import info.touret.bookstore.spring.book.generated.dto.BookSelectionDto;
+import info.touret.bookstore.spring.book.generated.dto.BookStatsDto;
+import info.touret.bookstore.spring.book.generated.dto.BulkOperationResultDto;
+import info.touret.bookstore.spring.book.generated.dto.RegistrationDto;
 import info.touret.bookstore.spring.book.mapper.BookMapper;
+import info.touret.bookstore.spring.book.registration.BookRegistration;
+import info.touret.bookstore.spring.book.registration.BookRegistrationQueue;
 import info.touret.bookstore.spring.book.service.BookService;
 import io.micrometer.core.annotation.Timed;
 import io.micrometer.observation.annotation.Observed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.math.BigDecimal;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Book REST API.
- * the API time to respond is monitor using <code>@Timed</code> annotation
+ * the API time to respond is monitor using <code>@Timed</code> annotation.
+ * <p>
+ * The books and the book lists are returned with a strong ETag. The ETag of a book is its version, the ETag of a list is the fingerprint of the whole catalog.
+ * When the <code>If-None-Match</code> header matches, a <code>304 Not Modified</code> is returned without loading or serializing any book.
+ * <p>
+ * The books can be read in the <code>summary</code> view: only their ID, title, author, price and excerpt are returned. The ETags of this view are suffixed with <code>-summary</code>.
  *
  * @see Timed
  */
@@ -24,12 +57,35 @@ import java.util.Map;
         contextualName = "book")
 @RestController
 public class BookController implements BooksApi {
+    /**
+     * Number of books per page when only the cursor is provided
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    /**
+     * Value of the <code>Prefer</code> header asking for an asynchronous registration (RFC 7240)
+     */
+    public static final String RESPOND_ASYNC = "respond-async";
+    /**
+     * Value of the <code>view</code> parameter asking for the book summaries
+     */
+    public static final String SUMMARY_VIEW = "summary";
+    /**
+     * Header providing the number of books found by a search
+     */
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
     private final BookMapper bookMapper;
     private final BookService bookService;
+    private final BookRegistrationQueue bookRegistrationQueue;
+    private final CacheControl cacheControl;
 
-    public BookController(BookService bookService, BookMapper bookMapper) {
+    public BookController(BookService bookService,
+                          BookMapper bookMapper,
+                          BookRegistrationQueue bookRegistrationQueue,
+                          @Value("${book.http.cache.max_age_sec:0}") long maxAgeInSec) {
         this.bookService = bookService;
         this.bookMapper = bookMapper;
+        this.bookRegistrationQueue = bookRegistrationQueue;
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeInSec)).mustRevalidate();
     }
 
     @Override
@@ -38,9 +94,81 @@ public class BookController implements BooksApi {
         return ResponseEntity.ok(bookMapper.toBookDto(bookService.findRandomBook()));
     }
 
+    /**
+     * Returns all the books or, if the limit, the cursor or a filter criterion is set, a page of books.
+     * The pages are fetched using keyset pagination on the ID. The URI of the next page is provided in the <code>Link</code> header.
+     * Every filter criterion is served by the index of its column.
+     * In the summary view, only the columns of the summary are read from the database.
+     *
+     * @param limit         the maximum number of books per page
+     * @param cursor        the opaque cursor provided by the previous page
+     * @param author        the author of the books
+     * @param publishedFrom the books published this year or after
+     * @param publishedTo   the books published this year or before
+     * @param minRank       the lowest rank
+     * @param maxRank       the highest rank
+     * @param minPrice      the lowest price
+     * @param maxPrice      the highest price
+     * @param view          <code>full</code> or <code>summary</code>
+     * @param ifNoneMatch   the ETag of the books already fetched
+     * @return the books
+     */
     @Override
-    public ResponseEntity<List<BookDto>> getAllBooks() {
-        return ResponseEntity.ok(bookMapper.toBookDtos(bookService.findAllBooks()));
+    public ResponseEntity<List<BookDto>> getAllBooks(Integer limit, String cursor, String author, Integer publishedFrom, Integer publishedTo,
+                                                     Integer minRank, Integer maxRank, BigDecimal minPrice, BigDecimal maxPrice,
+                                                     String view, String ifNoneMatch) {
+        var summary = SUMMARY_VIEW.equals(view);
+        var eTag = eTag(bookService.findCatalogVersion(), summary);
+        if (matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+        var response = ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl);
+        var filter = new BookFilter(author, publishedFrom, publishedTo, minRank, maxRank, minPrice, maxPrice);
+        if (limit == null && cursor == null && filter.isEmpty()) {
+            return response.body(summary
+                    ? bookMapper.toBookSummaryDtos(bookService.findAllBookSummaries())
+                    : bookMapper.toBookDtos(bookService.findAllBooks()));
+        }
+        var pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        var afterId = decodeCursor(cursor);
+        List<BookDto> books;
+        Long lastId;
+        boolean hasNext;
+        if (summary) {
+            var page = bookService.findBookSummaries(filter, afterId, pageSize);
+            books = bookMapper.toBookSummaryDtos(page.getContent());
+            lastId = page.hasContent() ? page.getContent().getLast().id() : null;
+            hasNext = page.hasNext();
+        } else {
+            var page = bookService.findBooks(filter, afterId, pageSize);
+            books = bookMapper.toBookDtos(page.getContent());
+            lastId = page.hasContent() ? page.getContent().getLast().getId() : null;
+            hasNext = page.hasNext();
+        }
+        if (hasNext) {
+            var nextPageUri = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("limit", pageSize)
+                    .replaceQueryParam("cursor", encodeCursor(lastId))
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + nextPageUri + ">; rel=\"next\"");
+        }
+        return response.body(books);
+    }
+
+    private static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeCursor(String cursor) {
+        if (cursor == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor, e);
+        }
     }
 
     /**
@@ -53,21 +181,175 @@ public class BookController implements BooksApi {
         return ResponseEntity.ok(Map.of("books.count", bookService.count()));
     }
 
+    /**
+     * Returns the statistics of the catalog. They are maintained in memory: the database is not read.
+     *
+     * @return the statistics of the catalog
+     */
     @Override
-    public ResponseEntity<BookDto> getBook(Long id) {
-        return ResponseEntity.of(bookService.findBookById(id).map(bookMapper::toBookDto));
+    public ResponseEntity<BookStatsDto> getBookStats() {
+        return ResponseEntity.ok(bookMapper.toBookStatsDto(bookService.getStatistics()));
     }
 
+    /**
+     * Returns a book. The book is taken from the cache, its version is enough to decide whether it has been modified.
+     * As the whole book is cached, the summary view only reduces the payload.
+     *
+     * @param id          the book ID
+     * @param view        <code>full</code> or <code>summary</code>
+     * @param ifNoneMatch the ETag of the book already fetched
+     * @return the book, or a 304 status if it has not been modified
+     */
     @Override
-    public ResponseEntity<URI> createBook(BookDto bookDto) {
+    public ResponseEntity<BookDto> getBook(Long id, String view, String ifNoneMatch) {
+        var optionalBook = bookService.findBookById(id);
+        if (optionalBook.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        var summary = SUMMARY_VIEW.equals(view);
+        var eTag = summary ? eTag(optionalBook.get().getVersion() + "-" + SUMMARY_VIEW) : eTag(optionalBook.get());
+        if (matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+        var bookDto = summary ? bookMapper.toBookDto(BookSummary.of(optionalBook.get())) : bookMapper.toBookDto(optionalBook.get());
+        return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl).body(bookDto);
+    }
+
+    private static String eTag(Book book) {
+        return eTag(String.valueOf(book.getVersion()));
+    }
+
+    private static String eTag(CatalogVersion catalogVersion, boolean summary) {
+        var value = catalogVersion.count() + "-" + Long.toHexString(catalogVersion.checksum());
+        return eTag(summary ? value + "-" + SUMMARY_VIEW : value);
+    }
+
+    private static String eTag(String value) {
+        return "\"" + value + "\"";
+    }
+
+    /**
+     * Checks the <code>If-None-Match</code> header using the weak comparison (RFC 9110)
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(value -> value.startsWith("W/") ? value.substring(2) : value)
+                .anyMatch(value -> value.equals("*") || value.equals(eTag));
+    }
+
+    /**
+     * Extracts the version of the book from the <code>If-Match</code> header
+     *
+     * @return the expected version, {@link BookService#ANY_VERSION} if the book must only exist, or null if the header is not set
+     * @throws InvalidETagException the header is not an ETag provided by this API
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        var value = ifMatch.trim();
+        if (value.equals("*")) {
+            return BookService.ANY_VERSION;
+        }
+        if (value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            throw new InvalidETagException("Invalid ETag: " + ifMatch);
+        }
+        try {
+            var version = Long.parseLong(value.substring(1, value.length() - 1));
+            if (version < 0) {
+                throw new InvalidETagException("Invalid ETag: " + ifMatch);
+            }
+            return version;
+        } catch (NumberFormatException e) {
+            throw new InvalidETagException("Invalid ETag: " + ifMatch, e);
+        }
+    }
+
+    /**
+     * Registers a book. If the <code>Prefer: respond-async</code> header is set, the book is put in the registration queue
+     * and the URI of the registration status is returned with a 202 status.
+     *
+     * @param bookDto the book to register
+     * @param prefer  the <code>Prefer</code> header
+     * @return the URI of the created book or of the registration status
+     * @see BookRegistrationQueue
+     */
+    @Override
+    public ResponseEntity<URI> createBook(BookDto bookDto, String prefer) {
+        if (prefer != null && prefer.toLowerCase().contains(RESPOND_ASYNC)) {
+            final var ticket = bookRegistrationQueue.submit(bookMapper.toBook(bookDto));
+            final var uri = URI.create(ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUriString() + "/registrations/" + ticket);
+            return ResponseEntity.accepted().location(uri).header("Preference-Applied", RESPOND_ASYNC).body(uri);
+        }
         final var registerBook = bookService.registerBook(bookMapper.toBook(bookDto));
         final var uri = URI.create(ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUriString() + "/" + registerBook.getId());
         return ResponseEntity.created(uri).build();
     }
 
+    /**
+     * Registers several books at once. The books rejected are reported with the reason of the rejection.
+     *
+     * @param bookDtos the books to register
+     * @return the result of every book, in the same order as the request
+     */
     @Override
-    public ResponseEntity<BookDto> updateBook(BookDto bookDto) {
-        return ResponseEntity.ok(bookMapper.toBookDto(bookService.updateBook(bookMapper.toBook(bookDto))));
+    public ResponseEntity<BookBatchResultDto> createBooks(List<BookDto> bookDtos) {
+        var results = bookService.registerBooks(bookMapper.toBooks(bookDtos));
+        var bookBatchResultDto = new BookBatchResultDto();
+        bookBatchResultDto.setItems(results.stream().map(this::toBookBatchItemDto).toList());
+        bookBatchResultDto.setCreated((int) results.stream().filter(BookBatchItemResult::isCreated).count());
+        bookBatchResultDto.setRejected(results.size() - bookBatchResultDto.getCreated());
+        return ResponseEntity.ok(bookBatchResultDto);
+    }
+
+    private BookBatchItemDto toBookBatchItemDto(BookBatchItemResult result) {
+        var bookBatchItemDto = new BookBatchItemDto();
+        bookBatchItemDto.setIndex(result.index());
+        if (result.isCreated()) {
+            bookBatchItemDto.setStatus(BookBatchItemDto.StatusEnum.CREATED);
+            bookBatchItemDto.setBookUri(ServletUriComponentsBuilder.fromCurrentContextPath().path("/books/{id}").buildAndExpand(result.bookId()).toUri());
+        } else {
+            bookBatchItemDto.setStatus(BookBatchItemDto.StatusEnum.REJECTED);
+            bookBatchItemDto.setReason(result.reason());
+        }
+        return bookBatchItemDto;
+    }
+
+    @Override
+    public ResponseEntity<RegistrationDto> getRegistration(UUID ticket) {
+        return ResponseEntity.of(bookRegistrationQueue.find(ticket).map(this::toRegistrationDto));
+    }
+
+    private RegistrationDto toRegistrationDto(BookRegistration registration) {
+        var registrationDto = new RegistrationDto();
+        registrationDto.setTicket(registration.getTicket());
+        registrationDto.setStatus(RegistrationDto.StatusEnum.valueOf(registration.getStatus().name()));
+        registrationDto.setReason(registration.getReason());
+        registrationDto.setSubmittedAt(registration.getSubmittedAt().atZone(ZoneId.systemDefault()).toOffsetDateTime());
+        if (registration.getCompletedAt() != null) {
+            registrationDto.setCompletedAt(registration.getCompletedAt().atZone(ZoneId.systemDefault()).toOffsetDateTime());
+        }
+        if (registration.getBookId() != null) {
+            registrationDto.setBookUri(ServletUriComponentsBuilder.fromCurrentContextPath().path("/books/{id}").buildAndExpand(registration.getBookId()).toUri());
+        }
+        return registrationDto;
+    }
+
+    /**
+     * Updates a book. If the <code>If-Match</code> header is set, the book is updated only if it has not been modified since the ETag was fetched.
+     *
+     * @param bookDto the book to update
+     * @param ifMatch the ETag of the book to update
+     * @return the book updated, with its new ETag
+     */
+    @Override
+    public ResponseEntity<BookDto> updateBook(BookDto bookDto, String ifMatch) {
+        var updatedBook = bookService.updateBook(bookMapper.toBook(bookDto), expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(updatedBook)).body(bookMapper.toBookDto(updatedBook));
     }
 
     @Override
@@ -76,13 +358,69 @@ public class BookController implements BooksApi {
         return ResponseEntity.noContent().build();
     }
 
-    /*@Override
+    /**
+     * Updates the selected books. The books are not loaded: they are updated chunk by chunk with set-based statements.
+     *
+     * @param bookBulkUpdateDto the books to update and the changes to apply
+     * @return the number of books updated
+     */
+    @Override
+    public ResponseEntity<BulkOperationResultDto> updateBooks(BookBulkUpdateDto bookBulkUpdateDto) {
+        return ResponseEntity.ok(toBulkOperationResultDto(bookService.updateBooks(
+                bookMapper.toBookSelection(bookBulkUpdateDto.getSelection()),
+                bookMapper.toBookChanges(bookBulkUpdateDto.getChanges()))));
+    }
+
+    /**
+     * Deletes the selected books. The books are not loaded: they are deleted chunk by chunk with set-based statements.
+     *
+     * @param bookSelectionDto the books to delete
+     * @return the number of books deleted
+     */
+    @Override
+    public ResponseEntity<BulkOperationResultDto> deleteBooks(BookSelectionDto bookSelectionDto) {
+        return ResponseEntity.ok(toBulkOperationResultDto(bookService.deleteBooks(bookMapper.toBookSelection(bookSelectionDto))));
+    }
+
+    private static BulkOperationResultDto toBulkOperationResultDto(BulkOperationResult result) {
+        var bulkOperationResultDto = new BulkOperationResultDto();
+        bulkOperationResultDto.setAffected(result.affected());
+        bulkOperationResultDto.setChunks(result.chunks());
+        return bulkOperationResultDto;
+    }
+
+    /**
+     * Returns the excerpt of a book. The description is not read.
+     *
+     * @param id the book ID
+     * @return the excerpt
+     */
+    @Override
     public ResponseEntity<String> getBookExcerpt(Long id) {
-        var optionalBook = bookService.findBookById(id);
-        if (optionalBook.isPresent()) {
-            return ResponseEntity.ok(optionalBook.get().getExcerpt());
-        } else {
-            return ResponseEntity.notFound().build();
+        return ResponseEntity.of(bookService.findBookExcerpt(id));
+    }
+
+    /**
+     * Searches the books by their title, author and description. The summaries of the books are returned, the most relevant first.
+     * The number of books found is provided in the <code>X-Total-Count</code> header, the URI of the next page in the <code>Link</code> header.
+     *
+     * @param q    the words to search
+     * @param page the page number, starting from 0
+     * @param size the maximum number of books per page
+     * @return the books found
+     */
+    @Override
+    public ResponseEntity<List<BookDto>> searchBooks(String q, Integer page, Integer size) {
+        var books = bookService.searchBooks(q, page, size);
+        var response = ResponseEntity.ok().header(TOTAL_COUNT_HEADER, Long.toString(books.getTotalElements()));
+        if (books.hasNext()) {
+            var nextPageUri = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("page", page + 1)
+                    .replaceQueryParam("size", size)
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + nextPageUri + ">; rel=\"next\"");
         }
-    }*/
+        return response.body(bookMapper.toBookSummaryDtos(books.getContent()));
+    }
 }
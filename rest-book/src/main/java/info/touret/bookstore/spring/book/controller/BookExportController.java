@@ -0,0 +1,72 @@
+package info.touret.bookstore.spring.book.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.mapper.BookMapper;
+import info.touret.bookstore.spring.book.service.BookService;
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Exports the whole catalog.
+ * <p>
+ * The books are read from a database cursor, mapped and written one by one to the response (chunked transfer encoding): the heap used stays flat whatever the size of the catalog is.
+ * The books are written as NDJSON (<code>application/x-ndjson</code>, by default) or as a JSON array (<code>application/json</code>).
+ * This endpoint is not described in the OpenAPI spec because the generated interfaces cannot return a streamed body.
+ *
+ * @see BookService#exportBooks(java.util.function.Consumer)
+ */
+@Observed(name = "book-export",
+        contextualName = "book-export")
+@RestController
+public class BookExportController {
+
+    public static final String API_EXPORT_URI = "/books/export";
+
+    private final BookService bookService;
+    private final BookMapper bookMapper;
+    private final ObjectMapper objectMapper;
+
+    public BookExportController(BookService bookService, BookMapper bookMapper, ObjectMapper objectMapper) {
+        this.bookService = bookService;
+        this.bookMapper = bookMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping(value = API_EXPORT_URI, produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        var asJsonArray = accept != null && accept.contains(MediaType.APPLICATION_JSON_VALUE) && !accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        var writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter sequenceWriter = asJsonArray ? writer.writeValuesAsArray(outputStream) : writer.withRootValueSeparator("\n").writeValues(outputStream)) {
+                bookService.exportBooks(book -> write(sequenceWriter, book));
+            }
+            outputStream.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(asJsonArray ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void write(SequenceWriter sequenceWriter, Book book) {
+        try {
+            sequenceWriter.write(bookMapper.toBookDto(book));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package info.touret.bookstore.spring.book.dto;
+
+/**
+ * Result of the registration of one book of a batch
+ *
+ * @param index  the position of the book in the batch
+ * @param bookId the ID of the book created, or null if it has been rejected
+ * @param reason the reason of the rejection, or null if it has been created
+ */
+public record BookBatchItemResult(int index, Long bookId, String reason) {
+
+    public static BookBatchItemResult created(int index, Long bookId) {
+        return new BookBatchItemResult(index, bookId, null);
+    }
+
+    public static BookBatchItemResult rejected(int index, String reason) {
+        return new BookBatchItemResult(index, null, reason);
+    }
+
+    public boolean isCreated() {
+        return bookId != null;
+    }
+}
@@ -0,0 +1,17 @@
+package info.touret.bookstore.spring.book.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Changes applied by a bulk update. The null attributes are left unchanged.
+ *
+ * @param author the new author
+ * @param price  the new price
+ * @param rank   the new rank
+ */
+public record BookChanges(String author, BigDecimal price, Integer rank) {
+
+    public boolean isEmpty() {
+        return author == null && price == null && rank == null;
+    }
+}
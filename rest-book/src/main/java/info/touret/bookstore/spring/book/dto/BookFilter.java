@@ -0,0 +1,43 @@
+package info.touret.bookstore.spring.book.dto;
+
+import info.touret.bookstore.spring.book.entity.Book;
+import java.math.BigDecimal;
+
+/**
+ * Filter criteria of the book reads. A null criterion is ignored, the bounds are inclusive.
+ *
+ * @param author        the author of the books
+ * @param publishedFrom the books published this year or after
+ * @param publishedTo   the books published this year or before
+ * @param minRank       the lowest rank
+ * @param maxRank       the highest rank
+ * @param minPrice      the lowest price
+ * @param maxPrice      the highest price
+ */
+public record BookFilter(String author, Integer publishedFrom, Integer publishedTo, Integer minRank, Integer maxRank, BigDecimal minPrice, BigDecimal maxPrice) {
+
+    /**
+     * No criterion: all the books are selected
+     */
+    public static final BookFilter NONE = new BookFilter(null, null, null, null, null, null, null);
+
+    public boolean isEmpty() {
+        return author == null && publishedFrom == null && publishedTo == null && minRank == null && maxRank == null && minPrice == null && maxPrice == null;
+    }
+
+    /**
+     * Applies the criteria to a book already loaded
+     *
+     * @param book the book
+     * @return true if the book matches all the criteria
+     */
+    public boolean matches(Book book) {
+        return (author == null || author.equals(book.getAuthor()))
+                && (publishedFrom == null || book.getYearOfPublication() != null && book.getYearOfPublication() >= publishedFrom)
+                && (publishedTo == null || book.getYearOfPublication() != null && book.getYearOfPublication() <= publishedTo)
+                && (minRank == null || book.getRank() != null && book.getRank() >= minRank)
+                && (maxRank == null || book.getRank() != null && book.getRank() <= maxRank)
+                && (minPrice == null || book.getPrice() != null && book.getPrice().compareTo(minPrice) >= 0)
+                && (maxPrice == null || book.getPrice() != null && book.getPrice().compareTo(maxPrice) <= 0);
+    }
+}
@@ -0,0 +1,28 @@
+package info.touret.bookstore.spring.book.dto;
+
+import java.util.List;
+
+/**
+ * Books targeted by a bulk operation: either a list of IDs or filter criteria
+ *
+ * @param ids             the book IDs
+ * @param author          the author of the books
+ * @param publishedBefore the books published strictly before this year
+ */
+public record BookSelection(List<Long> ids, String author, Integer publishedBefore) {
+
+    public boolean hasIds() {
+        return ids != null && !ids.isEmpty();
+    }
+
+    public boolean hasFilter() {
+        return author != null || publishedBefore != null;
+    }
+
+    /**
+     * @return the filter criteria of the selection, whose bounds are inclusive
+     */
+    public BookFilter toFilter() {
+        return new BookFilter(author, null, publishedBefore != null ? publishedBefore - 1 : null, null, null, null, null);
+    }
+}
@@ -0,0 +1,26 @@
+package info.touret.bookstore.spring.book.dto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Statistics of the whole catalog. The books without price, rank, year of publication or author are only counted in the total.
+ *
+ * @param count         the number of books
+ * @param price         the statistics of the prices
+ * @param rankHistogram the number of books for every rank, from 1 to 10
+ * @param countByYear   the number of books for every year of publication, ordered by year
+ * @param countByAuthor the number of books for every author, ordered by author
+ */
+public record BookStats(long count, PriceStats price, Map<Integer, Long> rankHistogram, Map<Integer, Long> countByYear, Map<String, Long> countByAuthor) {
+
+    /**
+     * @param count   the number of books having a price
+     * @param sum     the sum of the prices
+     * @param min     the lowest price, null if no book has a price
+     * @param max     the highest price, null if no book has a price
+     * @param average the average price, null if no book has a price
+     */
+    public record PriceStats(long count, BigDecimal sum, BigDecimal min, BigDecimal max, BigDecimal average) {
+    }
+}
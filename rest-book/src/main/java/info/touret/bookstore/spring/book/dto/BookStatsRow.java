@@ -0,0 +1,38 @@
+package info.touret.bookstore.spring.book.dto;
+
+import info.touret.bookstore.spring.book.entity.Book;
+
+import java.math.BigDecimal;
+
+/**
+ * Columns of a book taken into account by the catalog statistics, fetched with a projection for (re)building them
+ *
+ * @param id                the book ID
+ * @param version           the book version
+ * @param price             the price
+ * @param rank              the rank
+ * @param yearOfPublication the year of publication
+ * @param author            the author
+ */
+public record BookStatsRow(Long id, long version, BigDecimal price, Integer rank, Integer yearOfPublication, String author) {
+
+    /**
+     * @param book a book already loaded
+     * @return its statistics row
+     */
+    public static BookStatsRow of(Book book) {
+        return new BookStatsRow(book.getId(), book.getVersion(), book.getPrice(), book.getRank(), book.getYearOfPublication(), book.getAuthor());
+    }
+
+    /**
+     * @param changes the changes applied by a bulk update
+     * @return this row once the changes are applied. The version is incremented.
+     */
+    public BookStatsRow apply(BookChanges changes) {
+        return new BookStatsRow(id, version + 1,
+                changes.price() != null ? changes.price() : price,
+                changes.rank() != null ? changes.rank() : rank,
+                yearOfPublication,
+                changes.author() != null ? changes.author() : author);
+    }
+}
@@ -0,0 +1,26 @@
+package info.touret.bookstore.spring.book.dto;
+
+import info.touret.bookstore.spring.book.entity.Book;
+
+import java.math.BigDecimal;
+
+/**
+ * Summary view of a book, fetched with a projection: the other columns (e.g., the description) are neither selected nor serialized.
+ *
+ * @param id      the book ID
+ * @param title   the title
+ * @param author  the author
+ * @param price   the price
+ * @param excerpt the beginning of the description
+ * @param version the book version, used for computing the ETag
+ */
+public record BookSummary(Long id, String title, String author, BigDecimal price, String excerpt, long version) {
+
+    /**
+     * @param book a book already loaded
+     * @return its summary
+     */
+    public static BookSummary of(Book book) {
+        return new BookSummary(book.getId(), book.getTitle(), book.getAuthor(), book.getPrice(), book.getExcerpt(), book.getVersion());
+    }
+}
@@ -0,0 +1,12 @@
+package info.touret.bookstore.spring.book.dto;
+
+/**
+ * Searchable fields of a book, fetched with a projection for (re)building the search index
+ *
+ * @param id          the book ID
+ * @param title       the title
+ * @param author      the author
+ * @param description the description
+ */
+public record BookText(Long id, String title, String author, String description) {
+}
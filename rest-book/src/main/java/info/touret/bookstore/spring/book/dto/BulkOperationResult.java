@@ -0,0 +1,10 @@
+package info.touret.bookstore.spring.book.dto;
+
+/**
+ * Result of a bulk operation
+ *
+ * @param affected the number of books updated or deleted
+ * @param chunks   the number of statements executed
+ */
+public record BulkOperationResult(long affected, int chunks) {
+}
@@ -0,0 +1,33 @@
+package info.touret.bookstore.spring.book.dto;
+
+/**
+ * Fingerprint of the whole catalog, used to compute the ETag of the book lists.
+ * <p>
+ * The checksum is the sum of a 64-bit hash of the ID and the version of every book, so it can be kept up to date book by book, in any order.
+ * A creation or a removal adds or subtracts the hash of a book, an update replaces it with the hash of the next version:
+ * the checksum changes on every write, unless two hashes collide. It does not depend on the order in which the IDs are generated.
+ *
+ * @param count    the number of books
+ * @param checksum the sum of the hashes of the books, wrapping on overflow
+ */
+public record CatalogVersion(long count, long checksum) {
+
+    /**
+     * @param id      the book ID
+     * @param version the book version
+     * @return the contribution of the book to the checksum
+     */
+    public static long hash(long id, long version) {
+        return mix(mix(id) + version);
+    }
+
+    /**
+     * Finalizer of SplitMix64: every bit of the input changes half of the output bits on average
+     */
+    private static long mix(long value) {
+        var z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
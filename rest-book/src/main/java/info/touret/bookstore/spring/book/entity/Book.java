@@ -5,19 +5,50 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.PostLoad;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.net.URL;
-
+import java.util.UUID;
+
+/**
+ * A book of the catalog.
+ * <p>
+ * The columns used by the filters of the book reads are indexed. The author index also holds the ID: the books of an author are read in the order of the keyset pagination, without sorting.
+ * The indexes are created with the schema; <code>db/book-indexes.sql</code> creates them on an existing database.
+ *
+ * @see info.touret.bookstore.spring.book.repository.BookFilterRepository
+ */
 @Entity
+@Table(indexes = {
+        @Index(name = "book_author_idx", columnList = "author, id"),
+        @Index(name = "book_year_of_publication_idx", columnList = "year_of_publication"),
+        @Index(name = "book_rank_idx", columnList = "rank"),
+        @Index(name = "book_price_idx", columnList = "price")
+})
 public class Book implements Serializable {
 
+    /**
+     * Maximum length of the excerpt
+     */
+    public static final int EXCERPT_LENGTH = 100;
+
+    /**
+     * First ID generated by the sequence, above the IDs of the seeded books
+     */
+    public static final int FIRST_GENERATED_ID = 100_000;
+
     @NotNull
     private String title;
     @Column(name = "isbn_13")
@@ -41,27 +72,55 @@ public class Book implements Serializable {
     @Column(length = 10000)
 
     private String description;
+    /**
+     * Generated from a sequence with a pooled optimizer: Hibernate reserves 50 IDs per database round trip and can batch the inserts.
+     * The sequence starts above the IDs of the seeded books (see <code>import.sql</code>); for an existing database, see <code>db/book-sequence.sql</code>
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", initialValue = Book.FIRST_GENERATED_ID, allocationSize = 50)
     private Long id;
 
-   /* @Transient
-    private transient String excerpt;
+    /**
+     * Incremented on every update. Used for optimistic locking and for computing the ETags
+     */
+    @Version
+    @ColumnDefault("0")
+    private long version;
 
+    /**
+     * Beginning of the description, computed on every write and stored in its own short column: the description does not have to be read for showing it
+     */
+    @Column(length = EXCERPT_LENGTH)
+    private String excerpt;
+
+    /**
+     * Ticket of the asynchronous registration of the book, if any. Not stored in the database, only in the journal: the registration is completed once the book is replayed.
+     */
+    @Transient
+    private UUID registrationTicket;
+
+    /**
+     * Computes the excerpt before the book is inserted or updated
+     */
+    @PrePersist
+    @PreUpdate
+    public void computeExcerpt() {
+        this.excerpt = description != null ? description.substring(0, Math.min(description.length(), EXCERPT_LENGTH)) : null;
+    }
 
-// getter
+    public String getExcerpt() {
+        return excerpt;
+    }
 
-    public String getExcerpt(){
-        return this.excerpt;
+    public UUID getRegistrationTicket() {
+        return registrationTicket;
     }
 
+    public void setRegistrationTicket(UUID registrationTicket) {
+        this.registrationTicket = registrationTicket;
+    }
 
-    @PostLoad
-    public void initFields(){
-        if(description!=null) {
-            this.excerpt = description.substring(0, 100);
-        }
-    }*/
     public void setId(Long id) {
         this.id = id;
     }
@@ -70,6 +129,14 @@ public class Book implements Serializable {
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -0,0 +1,26 @@
+package info.touret.bookstore.spring.book.exception;
+
+/**
+ * Indicates that a bulk operation has no selection, an ambiguous selection or no change
+ */
+public class InvalidBulkOperationException extends RuntimeException {
+    public InvalidBulkOperationException() {
+        super();
+    }
+
+    public InvalidBulkOperationException(String message) {
+        super(message);
+    }
+
+    public InvalidBulkOperationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidBulkOperationException(Throwable cause) {
+        super(cause);
+    }
+
+    protected InvalidBulkOperationException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
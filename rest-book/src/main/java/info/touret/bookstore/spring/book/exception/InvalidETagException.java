@@ -0,0 +1,26 @@
+package info.touret.bookstore.spring.book.exception;
+
+/**
+ * Indicates that a conditional request header is not an ETag provided by the API
+ */
+public class InvalidETagException extends RuntimeException {
+    public InvalidETagException() {
+        super();
+    }
+
+    public InvalidETagException(String message) {
+        super(message);
+    }
+
+    public InvalidETagException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidETagException(Throwable cause) {
+        super(cause);
+    }
+
+    protected InvalidETagException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,26 @@
+package info.touret.bookstore.spring.book.exception;
+
+/**
+ * Indicates that too many asynchronous registrations are pending
+ */
+public class RegistrationQueueFullException extends RuntimeException {
+    public RegistrationQueueFullException() {
+        super();
+    }
+
+    public RegistrationQueueFullException(String message) {
+        super(message);
+    }
+
+    public RegistrationQueueFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public RegistrationQueueFullException(Throwable cause) {
+        super(cause);
+    }
+
+    protected RegistrationQueueFullException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,351 @@
+package info.touret.bookstore.spring.book.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import info.touret.bookstore.spring.book.entity.Book;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only journal storing the books which could not be registered because the Numbers API was not reachable.
+ * <p>
+ * The journal is split into segments (<code>segment-&lt;sequence&gt;.log</code>) which are rotated once they reach <code>book.journal.max_segment_bytes</code>.
+ * Each record is made of its length, a CRC32 checksum and the compact JSON representation of the book.
+ * The appended records are flushed to the disk in batches every <code>book.journal.fsync_interval_ms</code>.
+ * <p>
+ * The position of the last replayed record is stored in a <code>checkpoint</code> file. The fully replayed segments are removed.
+ * The number of records waiting to be replayed is exposed with the <code>books.journal.backlog</code> metric.
+ *
+ * @see BookJournalReplayer
+ */
+@Component
+public class BookJournal {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookJournal.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    /**
+     * Record length (int) followed by its CRC32 checksum (int)
+     */
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    private final Path directory;
+    private final long maxSegmentSize;
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong backlog = new AtomicLong();
+
+    private FileChannel channel;
+    private long segment;
+    private boolean dirty;
+    private Position checkpoint;
+
+    public BookJournal(@Value("${book.journal.directory:book-journal}") Path directory,
+                       @Value("${book.journal.max_segment_bytes:16777216}") long maxSegmentSize,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry) {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+        this.objectMapper = objectMapper;
+        Gauge.builder("books.journal.backlog", backlog, AtomicLong::get)
+                .description("Number of books waiting to be replayed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Position of a record in the journal
+     *
+     * @param segment the segment sequence
+     * @param offset  the offset of the record in the segment
+     */
+    public record Position(long segment, long offset) {
+    }
+
+    /**
+     * Record read from the journal
+     *
+     * @param book the journaled book, null if the record cannot be deserialized
+     * @param next the position of the following record
+     */
+    public record Entry(Book book, Position next) {
+    }
+
+    /**
+     * Opens the last segment, drops a partially written record if any and computes the backlog
+     */
+    @PostConstruct
+    public void open() {
+        try {
+            Files.createDirectories(directory);
+            checkpoint = readCheckpoint();
+            var segments = listSegments();
+            segment = segments.isEmpty() ? checkpoint.segment() : Math.max(segments.getLast(), checkpoint.segment());
+            long pending = 0;
+            for (var sequence : segments) {
+                if (sequence >= checkpoint.segment()) {
+                    var from = sequence == checkpoint.segment() ? checkpoint.offset() : 0L;
+                    pending += scan(sequence, from, Integer.MAX_VALUE, null).count();
+                }
+            }
+            backlog.set(pending);
+            channel = FileChannel.open(segmentPath(segment), CREATE, READ, WRITE);
+            var end = scan(segment, 0L, Integer.MAX_VALUE, null).end();
+            if (end < channel.size()) {
+                LOGGER.warn("Dropping a partially written record at the end of the segment [{}]", segmentPath(segment));
+                channel.truncate(end);
+            }
+            channel.position(end);
+            LOGGER.info("Book journal opened in [{}] with {} pending books", directory.toAbsolutePath(), pending);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the book journal", e);
+        }
+    }
+
+    /**
+     * Appends a book to the journal. The record is flushed to the disk asynchronously by {@link #sync()}.
+     *
+     * @param book the book to store
+     */
+    public void append(Book book) {
+        try {
+            var payload = objectMapper.writeValueAsBytes(book);
+            var buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length)
+                    .putInt(payload.length)
+                    .putInt(checksum(payload))
+                    .put(payload)
+                    .flip();
+            lock.lock();
+            try {
+                if (channel.position() > 0 && channel.position() + buffer.remaining() > maxSegmentSize) {
+                    rotate();
+                }
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                dirty = true;
+                backlog.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append the book to the journal", e);
+        }
+    }
+
+    /**
+     * Flushes the appended records to the disk
+     */
+    @Scheduled(fixedDelayString = "${book.journal.fsync_interval_ms:200}")
+    public void sync() {
+        lock.lock();
+        try {
+            if (dirty) {
+                channel.force(false);
+                dirty = false;
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cannot flush the book journal: {}", e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the records which have not been replayed yet
+     *
+     * @param max the maximum number of records to read
+     * @return the pending records, from the oldest to the newest one
+     */
+    public List<Entry> read(int max) {
+        var entries = new ArrayList<Entry>();
+        lock.lock();
+        try {
+            var position = checkpoint;
+            while (entries.size() < max && position.segment() <= segment) {
+                if (Files.exists(segmentPath(position.segment()))) {
+                    scan(position.segment(), position.offset(), max - entries.size(), entries);
+                }
+                position = new Position(position.segment() + 1, 0L);
+            }
+            return entries;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the book journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the records up to the given one as replayed. The fully replayed segments are removed.
+     *
+     * @param last  the last replayed record
+     * @param count the number of records replayed
+     */
+    public void acknowledge(Entry last, int count) {
+        lock.lock();
+        try {
+            checkpoint = last.next();
+            writeCheckpoint(checkpoint);
+            backlog.addAndGet(-count);
+            for (var sequence : listSegments()) {
+                if (sequence < checkpoint.segment()) {
+                    Files.deleteIfExists(segmentPath(sequence));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot update the book journal checkpoint", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of books waiting to be replayed
+     */
+    public long backlog() {
+        return backlog.get();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        segment++;
+        channel = FileChannel.open(segmentPath(segment), CREATE, READ, WRITE);
+        dirty = false;
+        LOGGER.info("Book journal rotated to the segment [{}]", segmentPath(segment));
+    }
+
+    private record ScanResult(int count, long end) {
+    }
+
+    /**
+     * Deserializes the book of a record. Returns null if the payload cannot be deserialized
+     */
+    private Book deserialize(byte[] payload, long sequence, long next) {
+        try {
+            return objectMapper.readValue(payload, Book.class);
+        } catch (IOException e) {
+            LOGGER.error("Cannot deserialize the record of the segment [{}] before offset {}: {}", segmentPath(sequence), next, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the valid records of a segment from the given offset. The scan stops at the first truncated or corrupted record.
+     *
+     * @param entries the list filled with the records read, or null to only count them
+     */
+    private ScanResult scan(long sequence, long from, int max, List<Entry> entries) throws IOException {
+        try (var reader = FileChannel.open(segmentPath(sequence), READ)) {
+            var size = reader.size();
+            var position = from;
+            var count = 0;
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+            while (count < max && position + HEADER_SIZE <= size) {
+                header.clear();
+                readFully(reader, header, position);
+                header.flip();
+                var length = header.getInt();
+                var crc = header.getInt();
+                if (length < 0 || position + HEADER_SIZE + length > size) {
+                    break;
+                }
+                var payload = ByteBuffer.allocate(length);
+                readFully(reader, payload, position + HEADER_SIZE);
+                if (checksum(payload.array()) != crc) {
+                    LOGGER.warn("Corrupted record found in the segment [{}] at offset {}", segmentPath(sequence), position);
+                    break;
+                }
+                position += HEADER_SIZE + length;
+                count++;
+                if (entries != null) {
+                    entries.add(new Entry(deserialize(payload.array(), sequence, position), new Position(sequence, position)));
+                }
+            }
+            return new ScanResult(count, position);
+        }
+    }
+
+    private static void readFully(FileChannel reader, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (reader.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private Position readCheckpoint() throws IOException {
+        var file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return new Position(0L, 0L);
+        }
+        var values = Files.readString(file, StandardCharsets.UTF_8).trim().split(":");
+        return new Position(Long.parseLong(values[0]), Long.parseLong(values[1]));
+    }
+
+    private void writeCheckpoint(Position position) throws IOException {
+        var file = directory.resolve(CHECKPOINT_FILE);
+        var temporaryFile = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(temporaryFile, position.segment() + ":" + position.offset(), StandardCharsets.UTF_8);
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int checksum(byte[] payload) {
+        var crc32 = new CRC32();
+        crc32.update(payload);
+        return (int) crc32.getValue();
+    }
+}
@@ -0,0 +1,104 @@
+package info.touret.bookstore.spring.book.journal;
+
+import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import info.touret.bookstore.spring.book.registration.BookRegistrationQueue;
+import info.touret.bookstore.spring.book.service.BookService;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
+import jakarta.validation.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically feeds the journaled books back to {@link BookService}.
+ * <p>
+ * The replay stops as soon as the Numbers API is still not reachable or the <code>slowNumbers</code> circuit breaker is still open, and is retried every <code>book.journal.replay.interval_ms</code>.
+ * It also stops on any other failure (e.g., the database is not available): the failing book is not acknowledged and is replayed by the next run.
+ * The asynchronous registration of a replayed book, if any, is completed (or failed if the book is skipped).
+ * Only the books which can never be registered (unreadable record, invalid book or constraint violated in the database) are skipped, otherwise they would block the replay forever.
+ * A book is replayed at least once: if the application stops between its registration and the checkpoint update, it is registered again at the next start.
+ *
+ * @see BookJournal
+ * @see BookService#replayBook(info.touret.bookstore.spring.book.entity.Book)
+ */
+@Component
+public class BookJournalReplayer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookJournalReplayer.class);
+
+    private final BookJournal bookJournal;
+    private final BookService bookService;
+    private final BookRegistrationQueue bookRegistrationQueue;
+    private final MaintenanceDrain maintenanceDrain;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public BookJournalReplayer(BookJournal bookJournal,
+                               BookService bookService,
+                               BookRegistrationQueue bookRegistrationQueue,
+                               MaintenanceDrain maintenanceDrain,
+                               @Value("${book.journal.replay.enabled:true}") boolean enabled,
+                               @Value("${book.journal.replay.batch_size:100}") int batchSize) {
+        this.bookJournal = bookJournal;
+        this.bookService = bookService;
+        this.bookRegistrationQueue = bookRegistrationQueue;
+        this.maintenanceDrain = maintenanceDrain;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Replays the pending books, batch by batch, from the oldest to the newest one. Nothing is replayed while the application is drained or in maintenance.
+     */
+    @Scheduled(fixedDelayString = "${book.journal.replay.interval_ms:5000}")
+    public void replay() {
+        if (!enabled || maintenanceDrain.getPhase() != MaintenanceDrain.Phase.ACCEPTING || bookJournal.backlog() == 0) {
+            return;
+        }
+        var replayed = 0;
+        var entries = bookJournal.read(batchSize);
+        while (!entries.isEmpty()) {
+            var count = 0;
+            BookJournal.Entry last = null;
+            try {
+                for (var entry : entries) {
+                    replay(entry);
+                    last = entry;
+                    count++;
+                }
+            } catch (RuntimeException e) {
+                if (e instanceof ApiCallTimeoutException) {
+                    LOGGER.info("Numbers API still not accessible, {} books replayed, {} still pending", replayed + count, bookJournal.backlog() - count);
+                } else {
+                    LOGGER.error("Cannot replay the journaled books, {} books replayed, {} still pending: {}", replayed + count, bookJournal.backlog() - count, e.getMessage(), e);
+                }
+                if (last != null) {
+                    bookJournal.acknowledge(last, count);
+                }
+                return;
+            }
+            bookJournal.acknowledge(last, count);
+            replayed += count;
+            entries = bookJournal.read(batchSize);
+        }
+        LOGGER.info("{} journaled books replayed", replayed);
+    }
+
+    private void replay(BookJournal.Entry entry) {
+        if (entry.book() == null) {
+            LOGGER.error("Unreadable journal record before {}, skipping it", entry.next());
+            return;
+        }
+        try {
+            var book = bookService.replayBook(entry.book());
+            bookRegistrationQueue.completeJournaled(entry.book().getRegistrationTicket(), book.getId());
+        } catch (ConstraintViolationException | DataIntegrityViolationException e) {
+            // The book itself is invalid: it would block the replay forever
+            LOGGER.error("Cannot replay the book [{}], skipping it: {}", entry.book().getTitle(), e.getMessage(), e);
+            bookRegistrationQueue.failJournaled(entry.book().getRegistrationTicket(), e.getMessage());
+        }
+    }
+}
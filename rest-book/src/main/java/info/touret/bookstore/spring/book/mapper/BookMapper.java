@@ -1,8 +1,16 @@
 package info.touret.bookstore.spring.book.mapper;
 
+import info.touret.bookstore.spring.book.dto.BookChanges;
+import info.touret.bookstore.spring.book.dto.BookSelection;
+import info.touret.bookstore.spring.book.dto.BookStats;
+import info.touret.bookstore.spring.book.dto.BookSummary;
 import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.generated.dto.BookChangesDto;
 import info.touret.bookstore.spring.book.generated.dto.BookDto;
+import info.touret.bookstore.spring.book.generated.dto.BookSelectionDto;
+import info.touret.bookstore.spring.book.generated.dto.BookStatsDto;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import java.util.HashMap;
 import java.util.List;
@@ -10,12 +18,28 @@ import java.util.Map;
 
 @Mapper
 public interface BookMapper {
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "registrationTicket", ignore = true)
     Book toBook(BookDto bookDto);
 
     BookDto toBookDto(Book book);
 
     List<BookDto> toBookDtos(List<Book> books);
 
+    List<Book> toBooks(List<BookDto> bookDtos);
+
+    BookDto toBookDto(BookSummary bookSummary);
+
+    List<BookDto> toBookSummaryDtos(List<BookSummary> bookSummaries);
+
+    BookSelection toBookSelection(BookSelectionDto bookSelectionDto);
+
+    BookChanges toBookChanges(BookChangesDto bookChangesDto);
+
+    BookStatsDto toBookStatsDto(BookStats bookStats);
+
+    Map<String, Long> toCountsByKey(Map<Integer, Long> counts);
+
 
     HashMap<String,String> toMap(Book book);
 
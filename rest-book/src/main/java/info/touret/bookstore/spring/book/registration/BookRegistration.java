@@ -0,0 +1,91 @@
+package info.touret.bookstore.spring.book.registration;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Status of an asynchronous book registration
+ *
+ * @see BookRegistrationQueue
+ */
+public class BookRegistration {
+
+    public enum Status {
+        /**
+         * Waiting in the queue or running
+         */
+        PENDING,
+        /**
+         * Stored in the journal because the Numbers API is not accessible: the registration is completed once the book is replayed
+         */
+        JOURNALED,
+        COMPLETED,
+        FAILED
+    }
+
+    private final UUID ticket;
+    private final Instant submittedAt;
+    private volatile Status status = Status.PENDING;
+    private volatile Long bookId;
+    private volatile String reason;
+    private volatile Instant completedAt;
+    private volatile Instant journaledAt;
+
+    BookRegistration(UUID ticket, Instant submittedAt) {
+        this.ticket = ticket;
+        this.submittedAt = submittedAt;
+    }
+
+    void complete(Long bookId) {
+        this.bookId = bookId;
+        this.completedAt = Instant.now();
+        this.status = Status.COMPLETED;
+    }
+
+    void journal(String reason) {
+        this.reason = reason;
+        this.journaledAt = Instant.now();
+        this.status = Status.JOURNALED;
+    }
+
+    void fail(String reason) {
+        this.reason = reason;
+        this.completedAt = Instant.now();
+        this.status = Status.FAILED;
+    }
+
+    public UUID getTicket() {
+        return ticket;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public Instant getJournaledAt() {
+        return journaledAt;
+    }
+
+    /**
+     * @return the date from which the retention applies: the completion, or the journaling if the book has not been replayed yet. Null while pending
+     */
+    Instant getRetainedSince() {
+        return completedAt != null ? completedAt : journaledAt;
+    }
+}
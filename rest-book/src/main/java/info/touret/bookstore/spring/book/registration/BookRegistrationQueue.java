@@ -0,0 +1,176 @@
+package info.touret.bookstore.spring.book.registration;
+
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import info.touret.bookstore.spring.book.exception.RegistrationQueueFullException;
+import info.touret.bookstore.spring.book.service.BookService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers books asynchronously.
+ * <p>
+ * The books are put in a bounded queue (<code>book.registration.queue_capacity</code>) and registered by a pool of workers (<code>book.registration.workers</code>).
+ * Each registration is identified by a ticket which can be used to check its status out. The finished and journaled registrations are kept during <code>book.registration.retention_sec</code>.
+ * If the Numbers API is not accessible, the book is journaled with its ticket and the registration stays {@link BookRegistration.Status#JOURNALED}
+ * until the book is replayed. The tickets are kept in memory only: the journaled registrations are lost (but the books are still replayed) if the application restarts.
+ * <p>
+ * The following metrics are exposed: <code>books.registrations.queue.size</code> and <code>books.registrations.completion</code> (time between the submission and the end of the registration).
+ *
+ * @see BookService#registerBook(Book)
+ */
+@Component
+public class BookRegistrationQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookRegistrationQueue.class);
+
+    private final BookService bookService;
+    private final ThreadPoolExecutor executor;
+    private final Duration retention;
+    private final Map<UUID, BookRegistration> registrations = new ConcurrentHashMap<>();
+    private final Timer completedTimer;
+    private final Timer failedTimer;
+
+    public BookRegistrationQueue(BookService bookService,
+                                 @Value("${book.registration.queue_capacity:1000}") int queueCapacity,
+                                 @Value("${book.registration.workers:4}") int workers,
+                                 @Value("${book.registration.retention_sec:600}") long retentionInSec,
+                                 MeterRegistry meterRegistry) {
+        this.bookService = bookService;
+        this.retention = Duration.ofSeconds(retentionInSec);
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("book-registration-"));
+        Gauge.builder("books.registrations.queue.size", executor, e -> e.getQueue().size())
+                .description("Number of books waiting to be registered")
+                .register(meterRegistry);
+        this.completedTimer = Timer.builder("books.registrations.completion")
+                .description("Time between the submission and the end of an asynchronous registration")
+                .tag("status", BookRegistration.Status.COMPLETED.name())
+                .register(meterRegistry);
+        this.failedTimer = Timer.builder("books.registrations.completion")
+                .description("Time between the submission and the end of an asynchronous registration")
+                .tag("status", BookRegistration.Status.FAILED.name())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Puts the book in the registration queue
+     *
+     * @param book the book to register
+     * @return the registration ticket
+     * @throws RegistrationQueueFullException too many registrations are pending
+     */
+    public UUID submit(Book book) {
+        var registration = new BookRegistration(UUID.randomUUID(), Instant.now());
+        registrations.put(registration.getTicket(), registration);
+        try {
+            executor.execute(() -> register(registration, book));
+        } catch (RejectedExecutionException e) {
+            registrations.remove(registration.getTicket());
+            throw new RegistrationQueueFullException("Too many pending registrations", e);
+        }
+        return registration.getTicket();
+    }
+
+    /**
+     * Finds a registration from its ticket
+     *
+     * @param ticket the registration ticket
+     * @return the registration or an empty value if it is unknown or expired
+     */
+    public Optional<BookRegistration> find(UUID ticket) {
+        return Optional.ofNullable(registrations.get(ticket));
+    }
+
+    /**
+     * @return the number of registrations waiting in the queue or running
+     */
+    public int pendingCount() {
+        return executor.getQueue().size() + executor.getActiveCount();
+    }
+
+    /**
+     * Removes the registrations finished or journaled for more than <code>book.registration.retention_sec</code>.
+     * A journaled book whose registration has been removed is still replayed.
+     */
+    @Scheduled(fixedDelayString = "${book.registration.purge_interval_ms:60000}")
+    public void purge() {
+        var expiration = Instant.now().minus(retention);
+        registrations.values().removeIf(registration -> registration.getRetainedSince() != null && registration.getRetainedSince().isBefore(expiration));
+    }
+
+    /**
+     * Completes a journaled registration once its book is replayed
+     *
+     * @param ticket the registration ticket, ignored if null or unknown
+     * @param bookId the ID of the registered book
+     * @see info.touret.bookstore.spring.book.journal.BookJournalReplayer
+     */
+    public void completeJournaled(UUID ticket, Long bookId) {
+        findJournaled(ticket).ifPresent(registration -> {
+            registration.complete(bookId);
+            completedTimer.record(Duration.between(registration.getSubmittedAt(), registration.getCompletedAt()));
+        });
+    }
+
+    /**
+     * Fails a journaled registration whose book cannot be replayed
+     *
+     * @param ticket the registration ticket, ignored if null or unknown
+     * @param reason the reason of the failure
+     */
+    public void failJournaled(UUID ticket, String reason) {
+        findJournaled(ticket).ifPresent(registration -> {
+            registration.fail(reason);
+            failedTimer.record(Duration.between(registration.getSubmittedAt(), registration.getCompletedAt()));
+        });
+    }
+
+    private Optional<BookRegistration> findJournaled(UUID ticket) {
+        return Optional.ofNullable(ticket)
+                .map(registrations::get)
+                .filter(registration -> registration.getStatus() == BookRegistration.Status.JOURNALED);
+    }
+
+    private void register(BookRegistration registration, Book book) {
+        book.setRegistrationTicket(registration.getTicket());
+        try {
+            registration.complete(bookService.registerBook(book).getId());
+            completedTimer.record(Duration.between(registration.getSubmittedAt(), registration.getCompletedAt()));
+        } catch (ApiCallTimeoutException e) {
+            registration.journal("Numbers API not accessible, the book will be registered once it is reachable again");
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot register the book [{}]: {}", book.getTitle(), e.getMessage(), e);
+            registration.fail(e.getMessage());
+            failedTimer.record(Duration.between(registration.getSubmittedAt(), registration.getCompletedAt()));
+        }
+    }
+
+    @PreDestroy
+    @SuppressWarnings("java:S2142")
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            LOGGER.warn("{} book registrations have not been processed", executor.shutdownNow().size());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package info.touret.bookstore.spring.book.repository;
+
+import info.touret.bookstore.spring.book.dto.BookFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * SQL query of the books matching filter criteria, using keyset pagination on the ID.
+ * <p>
+ * Only the predicates of the criteria provided are written. With <code>(:author is null or author = :author)</code>, the database may cache a generic plan
+ * which cannot use the index of the column; here, every predicate can always be served by the index of its column (see {@link info.touret.bookstore.spring.book.entity.Book}).
+ * The ID is not constrained for the first page, so that the primary key index does not look cheaper than the index of the filter.
+ *
+ * @see BookFilterRepository
+ */
+final class BookFilterQuery {
+
+    static final String BOOK_COLUMNS = "*";
+    static final String ID_COLUMNS = "id";
+    static final String SUMMARY_COLUMNS = "id, title, author, price, excerpt, version";
+
+    private final String sql;
+    private final List<Object> parameters;
+
+    /**
+     * @param columns the columns to select
+     * @param filter  the filter criteria
+     * @param afterId the ID of the last book of the previous page, 0 to get the first page
+     * @param limit   the maximum number of books
+     */
+    BookFilterQuery(String columns, BookFilter filter, long afterId, int limit) {
+        var where = new StringJoiner(" and ", " where ", "").setEmptyValue("");
+        var values = new ArrayList<Object>();
+        if (afterId > 0) {
+            addPredicate(where, values, "id > ?", afterId);
+        }
+        addPredicate(where, values, "author = ?", filter.author());
+        addPredicate(where, values, "year_of_publication >= ?", filter.publishedFrom());
+        addPredicate(where, values, "year_of_publication <= ?", filter.publishedTo());
+        addPredicate(where, values, "rank >= ?", filter.minRank());
+        addPredicate(where, values, "rank <= ?", filter.maxRank());
+        addPredicate(where, values, "price >= ?", filter.minPrice());
+        addPredicate(where, values, "price <= ?", filter.maxPrice());
+        values.add(limit);
+        this.sql = "select " + columns + " from book" + where + " order by id limit ?";
+        this.parameters = List.copyOf(values);
+    }
+
+    private static void addPredicate(StringJoiner where, List<Object> values, String predicate, Object value) {
+        if (value != null) {
+            where.add(predicate);
+            values.add(value);
+        }
+    }
+
+    /**
+     * @return the SQL statement, with JDBC-style parameters
+     */
+    String sql() {
+        return sql;
+    }
+
+    /**
+     * @return the values of the parameters, in order
+     */
+    List<Object> parameters() {
+        return parameters;
+    }
+}
@@ -0,0 +1,45 @@
+package info.touret.bookstore.spring.book.repository;
+
+import info.touret.bookstore.spring.book.dto.BookFilter;
+import info.touret.bookstore.spring.book.dto.BookSummary;
+import info.touret.bookstore.spring.book.entity.Book;
+
+import java.util.List;
+
+/**
+ * Filtered reads of the books, built from the criteria provided only
+ *
+ * @see BookFilterQuery
+ */
+public interface BookFilterRepository {
+
+    /**
+     * Gets a page of the books matching the filter criteria, using keyset pagination on the ID
+     *
+     * @param filter  the filter criteria
+     * @param afterId the ID of the last book of the previous page, 0 to get the first page
+     * @param limit   the maximum number of books
+     * @return the books found, ordered by ID
+     */
+    List<Book> findByFilter(BookFilter filter, long afterId, int limit);
+
+    /**
+     * Gets a page of the summaries of the books matching the filter criteria, using keyset pagination on the ID. Only the columns of the summary are selected.
+     *
+     * @param filter  the filter criteria
+     * @param afterId the ID of the last book of the previous page, 0 to get the first page
+     * @param limit   the maximum number of books
+     * @return the summaries of the books found, ordered by ID
+     */
+    List<BookSummary> findSummariesByFilter(BookFilter filter, long afterId, int limit);
+
+    /**
+     * Gets a chunk of the IDs of the books matching the filter criteria, using keyset pagination on the ID. Only the ID column is selected.
+     *
+     * @param filter  the filter criteria
+     * @param afterId the last ID of the previous chunk, 0 to get the first chunk
+     * @param limit   the chunk size
+     * @return the IDs found, ordered
+     */
+    List<Long> findIdsByFilter(BookFilter filter, long afterId, int limit);
+}
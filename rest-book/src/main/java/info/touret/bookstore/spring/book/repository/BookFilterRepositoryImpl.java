@@ -0,0 +1,57 @@
+package info.touret.bookstore.spring.book.repository;
+
+import info.touret.bookstore.spring.book.dto.BookFilter;
+import info.touret.bookstore.spring.book.dto.BookSummary;
+import info.touret.bookstore.spring.book.entity.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Runs the {@link BookFilterQuery} as native queries
+ */
+class BookFilterRepositoryImpl implements BookFilterRepository {
+
+    private final EntityManager entityManager;
+
+    BookFilterRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Book> findByFilter(BookFilter filter, long afterId, int limit) {
+        var query = new BookFilterQuery(BookFilterQuery.BOOK_COLUMNS, filter, afterId, limit);
+        return bind(entityManager.createNativeQuery(query.sql(), Book.class), query).getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<BookSummary> findSummariesByFilter(BookFilter filter, long afterId, int limit) {
+        var query = new BookFilterQuery(BookFilterQuery.SUMMARY_COLUMNS, filter, afterId, limit);
+        List<Object[]> rows = bind(entityManager.createNativeQuery(query.sql()), query).getResultList();
+        return rows.stream()
+                .map(row -> new BookSummary(((Number) row[0]).longValue(), (String) row[1], (String) row[2], (BigDecimal) row[3], (String) row[4], ((Number) row[5]).longValue()))
+                .toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> findIdsByFilter(BookFilter filter, long afterId, int limit) {
+        var query = new BookFilterQuery(BookFilterQuery.ID_COLUMNS, filter, afterId, limit);
+        List<Number> ids = bind(entityManager.createNativeQuery(query.sql()), query).getResultList();
+        return ids.stream()
+                .map(Number::longValue)
+                .toList();
+    }
+
+    private static Query bind(Query nativeQuery, BookFilterQuery query) {
+        var parameters = query.parameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            nativeQuery.setParameter(i + 1, parameters.get(i));
+        }
+        return nativeQuery;
+    }
+}
@@ -1,15 +1,126 @@
 package info.touret.bookstore.spring.book.repository;
+import info.touret.bookstore.spring.book.dto.BookStatsRow;
+import info.touret.bookstore.spring.book.dto.BookSummary;
+import info.touret.bookstore.spring.book.dto.BookText;
 import info.touret.bookstore.spring.book.entity.Book;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 /**
  * Book Spring Data Repository
+ *
+ * @see BookFilterRepository
  */
-public interface BookRepository extends CrudRepository<Book, Long> {
+public interface BookRepository extends CrudRepository<Book, Long>, BookFilterRepository {
 
+    /**
+     * Streams all the IDs. It must be called within a transaction and the stream must be closed after use.
+     *
+     * @return all the IDs stored in the database
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
     @Query(value = "select b.id from Book b")
-    List<Long> findAllIds();
+    Stream<Long> streamAllIds();
+
+    /**
+     * Gets a page of books using keyset pagination: the books are read from the primary key index, starting right after the given ID.
+     *
+     * @param id       the ID of the last book of the previous page
+     * @param pageable the page size. The page number must always be 0
+     * @return the books whose ID is greater than the given one, ordered by ID
+     */
+    Slice<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Gets the summary of all the books: only the columns of the summary are selected
+     *
+     * @return the summaries of all the books, ordered by ID
+     */
+    @Query(value = "select new info.touret.bookstore.spring.book.dto.BookSummary(b.id, b.title, b.author, b.price, b.excerpt, b.version) from Book b order by b.id")
+    List<BookSummary> findAllSummaries();
+
+    /**
+     * Gets a page of book summaries using keyset pagination. Only the columns of the summary are selected.
+     *
+     * @param id       the ID of the last book of the previous page
+     * @param pageable the page size. The page number must always be 0
+     * @return the summaries of the books whose ID is greater than the given one, ordered by ID
+     */
+    @Query(value = "select new info.touret.bookstore.spring.book.dto.BookSummary(b.id, b.title, b.author, b.price, b.excerpt, b.version) from Book b where b.id > :id order by b.id")
+    Slice<BookSummary> findSummariesByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Gets the summaries of the given books. Only the columns of the summary are selected.
+     *
+     * @param ids the book IDs
+     * @return the summaries of the books found, in no particular order
+     */
+    @Query(value = "select new info.touret.bookstore.spring.book.dto.BookSummary(b.id, b.title, b.author, b.price, b.excerpt, b.version) from Book b where b.id in :ids")
+    List<BookSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Streams the searchable fields of all the books. It must be called within a transaction and the stream must be closed after use.
+     *
+     * @return the searchable fields of all the books stored in the database
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "select new info.touret.bookstore.spring.book.dto.BookText(b.id, b.title, b.author, b.description) from Book b")
+    Stream<BookText> streamAllTexts();
+
+    /**
+     * Gets the searchable fields of the given books
+     *
+     * @param ids the book IDs
+     * @return the searchable fields of the books found
+     */
+    @Query(value = "select new info.touret.bookstore.spring.book.dto.BookText(b.id, b.title, b.author, b.description) from Book b where b.id in :ids")
+    List<BookText> findTextsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Streams the columns of all the books taken into account by the statistics. It must be called within a transaction and the stream must be closed after use.
+     *
+     * @return the statistics rows of all the books stored in the database
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "select new info.touret.bookstore.spring.book.dto.BookStatsRow(b.id, b.version, b.price, b.rank, b.yearOfPublication, b.author) from Book b")
+    Stream<BookStatsRow> streamAllStatsRows();
+
+    /**
+     * Streams all the books, ordered by ID. It must be called within a transaction and the stream must be closed after use.
+     *
+     * @return all the books stored in the database
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "select b from Book b order by b.id")
+    Stream<Book> streamAll();
+
+    /**
+     * Gets the excerpt of a book without reading its description
+     *
+     * @param id the book ID
+     * @return the excerpt, empty if the book has no description
+     */
+    @Query(value = "select coalesce(b.excerpt, '') from Book b where b.id = :id")
+    Optional<String> findExcerptById(@Param("id") Long id);
+
+    /**
+     * Gets the version of a book without loading it
+     *
+     * @param id the book ID
+     * @return the book version
+     */
+    @Query(value = "select b.version from Book b where b.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
 }
@@ -0,0 +1,54 @@
+package info.touret.bookstore.spring.book.search;
+
+import info.touret.bookstore.spring.book.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+
+/**
+ * Full-text index of the books, over their title, author and description.
+ * <p>
+ * The implementation is chosen with the <code>book.search.engine</code> property: <code>memory</code> (default) or <code>postgres</code>.
+ * The index is kept up to date by {@link info.touret.bookstore.spring.book.service.BookService} on every register/update/delete.
+ *
+ * @see InMemoryBookSearchIndex
+ * @see PostgresBookSearchIndex
+ */
+public interface BookSearchIndex {
+
+    /**
+     * Searches the books matching the query
+     *
+     * @param query    the words to search
+     * @param pageable the page to get. The sort is ignored: the books are ranked by relevance
+     * @return the IDs of the books found, the most relevant first
+     */
+    Page<Long> search(String query, Pageable pageable);
+
+    /**
+     * Indexes a book which has been created or updated
+     *
+     * @param book the book saved
+     */
+    void index(Book book);
+
+    /**
+     * Indexes again books which have been updated without being loaded (e.g., by a bulk update)
+     *
+     * @param ids the book IDs
+     */
+    void reindex(Collection<Long> ids);
+
+    /**
+     * Removes books from the index
+     *
+     * @param ids the IDs of the books removed
+     */
+    void remove(Collection<Long> ids);
+
+    /**
+     * Rebuilds the index from the database
+     */
+    void reload();
+}
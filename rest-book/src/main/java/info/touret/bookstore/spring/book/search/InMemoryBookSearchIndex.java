@@ -0,0 +1,278 @@
+package info.touret.bookstore.spring.book.search;
+
+import info.touret.bookstore.spring.book.dto.BookText;
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.repository.BookRepository;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index of the books, held in memory.
+ * <p>
+ * The title, the author and the description are split into lower case words without accents. For every word, the index stores the books containing it
+ * with the number of occurrences, weighted by field (a word of the title counts three times, a word of the author twice).
+ * The books are ranked using TF-IDF: the rarer a word is in the catalog, the more it counts. The books matching the most words of the query come first.
+ * <p>
+ * The index is built at startup by streaming the searchable fields only, then kept up to date by the service.
+ * The changes made while the index is being built are replayed on the new one before it replaces the current one.
+ * As the other rest-book instances do not update it, it is rebuilt every <code>book.search.rebuild_interval_ms</code>, unless the application is draining or in maintenance.
+ */
+@Component
+@ConditionalOnProperty(name = "book.search.engine", havingValue = "memory", matchIfMissing = true)
+public class InMemoryBookSearchIndex implements BookSearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryBookSearchIndex.class);
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int MIN_WORD_LENGTH = 2;
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final BookRepository bookRepository;
+    private final MaintenanceDrain maintenanceDrain;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // The following fields are guarded by the lock
+    /**
+     * Weighted number of occurrences of every word, by book ID
+     */
+    private Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    /**
+     * Words of every book, used for removing it
+     */
+    private Map<Long, Collection<String>> words = new HashMap<>();
+    /**
+     * Changes made while a load is running, replayed on the new index before it replaces the current one. Null if no load is running.
+     */
+    private List<Change> changesDuringLoad;
+
+    public InMemoryBookSearchIndex(BookRepository bookRepository, @Lazy MaintenanceDrain maintenanceDrain) {
+        this.bookRepository = bookRepository;
+        this.maintenanceDrain = maintenanceDrain;
+    }
+
+    /**
+     * Builds the index once the application is started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void seed() {
+        load();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void reload() {
+        load();
+    }
+
+    /**
+     * Rebuilds the index for taking into account the changes made by the other instances
+     */
+    @Scheduled(initialDelayString = "${book.search.rebuild_interval_ms:600000}", fixedDelayString = "${book.search.rebuild_interval_ms:600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (maintenanceDrain.getPhase() != MaintenanceDrain.Phase.ACCEPTING) {
+            return;
+        }
+        load();
+    }
+
+    /**
+     * Builds a new index which replaces the current one at the end: the index stays searchable during the load
+     */
+    private synchronized void load() {
+        // Recorded before opening the cursor: a change committed after the read snapshot is replayed, replaying one already read is harmless
+        lock.writeLock().lock();
+        try {
+            changesDuringLoad = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        var freshPostings = new HashMap<String, Map<Long, Integer>>();
+        var freshWords = new HashMap<Long, Collection<String>>();
+        try (var stream = bookRepository.streamAllTexts()) {
+            stream.forEach(book -> add(book, freshPostings, freshWords));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringLoad = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            for (var change : changesDuringLoad) {
+                remove(change.id(), freshPostings, freshWords);
+                if (change.bookText() != null) {
+                    add(change.bookText(), freshPostings, freshWords);
+                }
+            }
+            changesDuringLoad = null;
+            postings = freshPostings;
+            words = freshWords;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Book search index loaded with {} books and {} words", freshWords.size(), freshPostings.size());
+    }
+
+    @Override
+    public Page<Long> search(String query, Pageable pageable) {
+        var queryWords = tokenize(query).keySet();
+        if (queryWords.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        var scores = new HashMap<Long, Double>();
+        var matches = new HashMap<Long, Integer>();
+        lock.readLock().lock();
+        try {
+            for (var word : queryWords) {
+                var books = postings.get(word);
+                if (books == null) {
+                    continue;
+                }
+                var idf = Math.log(1 + (double) words.size() / books.size());
+                books.forEach((id, occurrences) -> {
+                    scores.merge(id, occurrences * idf, Double::sum);
+                    matches.merge(id, 1, Integer::sum);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        var ranking = scores.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Long, Double>>comparingInt(entry -> matches.get(entry.getKey())).reversed()
+                        .thenComparing(Map.Entry.<Long, Double>comparingByValue().reversed())
+                        .thenComparing(Map.Entry.<Long, Double>comparingByKey()))
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(Map.Entry::getKey)
+                .toList();
+        return new PageImpl<>(ranking, pageable, scores.size());
+    }
+
+    @Override
+    public void index(Book book) {
+        var bookText = new BookText(book.getId(), book.getTitle(), book.getAuthor(), book.getDescription());
+        lock.writeLock().lock();
+        try {
+            remove(book.getId(), postings, words);
+            add(bookText, postings, words);
+            record(new Change(book.getId(), bookText));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void reindex(Collection<Long> ids) {
+        var bookTexts = bookRepository.findTextsByIdIn(ids);
+        lock.writeLock().lock();
+        try {
+            ids.forEach(id -> remove(id, postings, words));
+            bookTexts.forEach(bookText -> add(bookText, postings, words));
+            ids.forEach(id -> record(new Change(id, null)));
+            bookTexts.forEach(bookText -> record(new Change(bookText.id(), bookText)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(id -> remove(id, postings, words));
+            ids.forEach(id -> record(new Change(id, null)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Must be called with the write lock held
+     */
+    private void record(Change change) {
+        if (changesDuringLoad != null) {
+            changesDuringLoad.add(change);
+        }
+    }
+
+    private static void add(BookText book, Map<String, Map<Long, Integer>> postings, Map<Long, Collection<String>> words) {
+        var occurrences = new HashMap<String, Integer>();
+        tokenize(book.title()).forEach((word, count) -> occurrences.merge(word, count * TITLE_WEIGHT, Integer::sum));
+        tokenize(book.author()).forEach((word, count) -> occurrences.merge(word, count * AUTHOR_WEIGHT, Integer::sum));
+        tokenize(book.description()).forEach((word, count) -> occurrences.merge(word, count * DESCRIPTION_WEIGHT, Integer::sum));
+        occurrences.forEach((word, count) -> postings.computeIfAbsent(word, w -> new HashMap<>()).put(book.id(), count));
+        words.put(book.id(), List.copyOf(occurrences.keySet()));
+    }
+
+    private static void remove(Long id, Map<String, Map<Long, Integer>> postings, Map<Long, Collection<String>> words) {
+        var bookWords = words.remove(id);
+        if (bookWords == null) {
+            return;
+        }
+        for (var word : bookWords) {
+            var books = postings.get(word);
+            books.remove(id);
+            if (books.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Book indexed or removed while a load is running
+     *
+     * @param id       the book ID
+     * @param bookText the searchable fields of the book, null if it has been removed
+     */
+    private record Change(Long id, BookText bookText) {
+    }
+
+    /**
+     * Splits a text into lower case words without accents
+     *
+     * @return the number of occurrences of every word
+     */
+    static Map<String, Integer> tokenize(String text) {
+        var occurrences = new HashMap<String, Integer>();
+        if (text == null) {
+            return occurrences;
+        }
+        var normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        Arrays.stream(WORD_SEPARATOR.split(normalized))
+                .filter(word -> word.length() >= MIN_WORD_LENGTH)
+                .forEach(word -> occurrences.merge(word, 1, Integer::sum));
+        return occurrences;
+    }
+}
@@ -0,0 +1,88 @@
+package info.touret.bookstore.spring.book.search;
+
+import info.touret.bookstore.spring.book.entity.Book;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Full-text search delegated to PostgreSQL.
+ * <p>
+ * The books are matched against a weighted <code>tsvector</code> (title: A, author: B, description: C) and ranked with <code>ts_rank</code>.
+ * The <code>tsvector</code> is not stored: a GIN expression index is used as long as the queries repeat the same expression.
+ * The index is provided by <code>db/book-indexes.sql</code> and, for a schema created by the application, built at startup without locking the table against writes.
+ * As the database is always up to date, the changes notified by the service are ignored and the index is shared by all the rest-book instances.
+ */
+@Component
+@ConditionalOnProperty(name = "book.search.engine", havingValue = "postgres")
+public class PostgresBookSearchIndex implements BookSearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostgresBookSearchIndex.class);
+    /**
+     * Must be exactly the expression of the index (see <code>db/book-indexes.sql</code>)
+     */
+    private static final String DOCUMENT = "(setweight(to_tsvector('simple', coalesce(title, '')), 'A')"
+            + " || setweight(to_tsvector('simple', coalesce(author, '')), 'B')"
+            + " || setweight(to_tsvector('simple', coalesce(description, '')), 'C'))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PostgresBookSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Creates the GIN index once the application is started, if it does not exist yet.
+     * The index is built concurrently, hence outside any transaction: the books can still be written meanwhile.
+     * An invalid index left by a previous failed build is dropped first, as it would never be used.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndex() {
+        var invalid = jdbcTemplate.queryForObject("select count(*) from pg_index i join pg_class c on c.oid = i.indexrelid"
+                + " where c.relname = 'book_search_idx' and not i.indisvalid", Long.class);
+        if (invalid != null && invalid > 0) {
+            LOGGER.warn("Invalid book search index found, dropping it");
+            jdbcTemplate.execute("drop index concurrently if exists book_search_idx");
+        }
+        jdbcTemplate.execute("create index concurrently if not exists book_search_idx on book using gin (" + DOCUMENT + ")");
+        LOGGER.info("Book search index available");
+    }
+
+    @Override
+    public Page<Long> search(String query, Pageable pageable) {
+        var ids = jdbcTemplate.queryForList("select id from book, plainto_tsquery('simple', ?) query where " + DOCUMENT + " @@ query"
+                        + " order by ts_rank(" + DOCUMENT + ", query) desc, id limit ? offset ?",
+                Long.class, query, pageable.getPageSize(), pageable.getOffset());
+        var total = jdbcTemplate.queryForObject("select count(*) from book where " + DOCUMENT + " @@ plainto_tsquery('simple', ?)", Long.class, query);
+        return new PageImpl<>(ids, pageable, total != null ? total : 0L);
+    }
+
+    @Override
+    public void index(Book book) {
+        // Indexed by the database
+    }
+
+    @Override
+    public void reindex(Collection<Long> ids) {
+        // Indexed by the database
+    }
+
+    @Override
+    public void remove(Collection<Long> ids) {
+        // Indexed by the database
+    }
+
+    @Override
+    public void reload() {
+        // Indexed by the database
+    }
+}
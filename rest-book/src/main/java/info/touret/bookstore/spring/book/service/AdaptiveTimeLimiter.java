@@ -0,0 +1,134 @@
+package info.touret.bookstore.spring.book.service;
+
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the timeout of the Numbers API calls from their latency.
+ * <p>
+ * The latencies of the last <code>booknumbers.api.timeout.adaptive.window_size</code> calls are kept in memory. Periodically, the timeout is set to their
+ * <code>booknumbers.api.timeout.adaptive.percentile</code> percentile times <code>booknumbers.api.timeout.adaptive.multiplier</code>, within
+ * <code>booknumbers.api.timeout.adaptive.min_ms</code> and <code>booknumbers.api.timeout_sec</code>.
+ * The calls cut by the timeout are recorded with the timeout as latency: if the Numbers API slows down, the timeout grows back instead of cutting every call.
+ * <p>
+ * Until enough calls are recorded, or if <code>booknumbers.api.timeout.adaptive.enabled</code> is not set, the timeout is <code>booknumbers.api.timeout_sec</code>.
+ * <p>
+ * The timeout is applied to every call protected by the <code>slowNumbers</code> circuit breaker (the registrations, the batches and the pool refills):
+ * its time limiter is replaced in the registry whenever the timeout changes.
+ * The timeout is exposed with the <code>booknumbers.api.timeout</code> metric.
+ *
+ * @see HedgedNumbersClient
+ * @see info.touret.bookstore.spring.book.BookConfiguration#createSlowNumbersAPICallCustomizer()
+ */
+@Component
+public class AdaptiveTimeLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveTimeLimiter.class);
+    private static final String CIRCUIT_BREAKER_ID = "slowNumbers";
+
+    private final boolean enabled;
+    private final double percentile;
+    private final double multiplier;
+    private final long minTimeoutInMs;
+    private final long maxTimeoutInMs;
+    private final int minSamples;
+    private final TimeLimiterRegistry timeLimiterRegistry;
+    // The following fields are guarded by this
+    private final long[] latencies;
+    private int nextLatency;
+    private int latencyCount;
+    private volatile long timeoutInMs;
+
+    public AdaptiveTimeLimiter(@Value("${booknumbers.api.timeout.adaptive.enabled:false}") boolean enabled,
+                               @Value("${booknumbers.api.timeout.adaptive.percentile:99}") double percentile,
+                               @Value("${booknumbers.api.timeout.adaptive.multiplier:2}") double multiplier,
+                               @Value("${booknumbers.api.timeout.adaptive.min_ms:50}") long minTimeoutInMs,
+                               @Value("${booknumbers.api.timeout_sec}") int maxTimeoutInSec,
+                               @Value("${booknumbers.api.timeout.adaptive.window_size:1000}") int windowSize,
+                               @Value("${booknumbers.api.timeout.adaptive.min_samples:100}") int minSamples,
+                               TimeLimiterRegistry timeLimiterRegistry,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.multiplier = multiplier;
+        this.maxTimeoutInMs = TimeUnit.SECONDS.toMillis(maxTimeoutInSec);
+        this.minTimeoutInMs = Math.min(minTimeoutInMs, maxTimeoutInMs);
+        this.minSamples = Math.min(minSamples, windowSize);
+        this.latencies = new long[windowSize];
+        this.timeLimiterRegistry = timeLimiterRegistry;
+        this.timeoutInMs = maxTimeoutInMs;
+        applyTimeout(maxTimeoutInMs);
+        Gauge.builder("booknumbers.api.timeout", this, AdaptiveTimeLimiter::getTimeoutInMs)
+                .description("Timeout applied to the Numbers API calls")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the latency of a Numbers API call
+     *
+     * @param latencyInNs the latency, or the timeout if the call has been cut
+     */
+    public synchronized void record(long latencyInNs) {
+        latencies[nextLatency] = latencyInNs;
+        nextLatency = (nextLatency + 1) % latencies.length;
+        latencyCount = Math.min(latencyCount + 1, latencies.length);
+    }
+
+    /**
+     * @return the timeout to apply to the next Numbers API call
+     */
+    public long getTimeoutInMs() {
+        return timeoutInMs;
+    }
+
+    /**
+     * Computes the timeout from the latencies recorded
+     */
+    @Scheduled(fixedDelayString = "${booknumbers.api.timeout.adaptive.update_interval_ms:1000}")
+    public void update() {
+        if (!enabled) {
+            return;
+        }
+        long[] window;
+        synchronized (this) {
+            if (latencyCount < minSamples) {
+                return;
+            }
+            window = Arrays.copyOf(latencies, latencyCount);
+        }
+        Arrays.sort(window);
+        var index = Math.clamp((long) Math.ceil(percentile / 100 * window.length) - 1, 0, window.length - 1);
+        var latencyInMs = window[index] / 1_000_000d;
+        var newTimeoutInMs = Math.clamp((long) Math.ceil(latencyInMs * multiplier), minTimeoutInMs, maxTimeoutInMs);
+        if (newTimeoutInMs != timeoutInMs) {
+            LOGGER.debug("Numbers API timeout set to {} ms (p{}: {} ms)", newTimeoutInMs, percentile, latencyInMs);
+            timeoutInMs = newTimeoutInMs;
+            applyTimeout(newTimeoutInMs);
+        }
+    }
+
+    /**
+     * Replaces the time limiter of the <code>slowNumbers</code> circuit breaker: it is looked up in the registry on every call
+     */
+    private void applyTimeout(long newTimeoutInMs) {
+        var config = TimeLimiterConfig.custom().timeoutDuration(Duration.ofMillis(newTimeoutInMs)).build();
+        if (timeLimiterRegistry.find(CIRCUIT_BREAKER_ID).isPresent()) {
+            timeLimiterRegistry.replace(CIRCUIT_BREAKER_ID, TimeLimiter.of(CIRCUIT_BREAKER_ID, config));
+        } else {
+            timeLimiterRegistry.timeLimiter(CIRCUIT_BREAKER_ID, config);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package info.touret.bookstore.spring.book.service;
+
+import info.touret.bookstore.spring.book.dto.BookChanges;
+import info.touret.bookstore.spring.book.entity.Book;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Writes books in batches.
+ * <p>
+ * The persistence context is flushed and cleared every <code>spring.jpa.properties.hibernate.jdbc.batch_size</code> books:
+ * the pending inserts are sent in one JDBC batch and the memory used stays the same whatever the number of books is.
+ * The bulk updates and deletes are run with one set-based statement per chunk of IDs, without loading the books.
+ *
+ * @see BookService#registerBooks(List)
+ * @see BookService#updateBooks(info.touret.bookstore.spring.book.dto.BookSelection, BookChanges)
+ * @see BookService#deleteBooks(info.touret.bookstore.spring.book.dto.BookSelection)
+ */
+@Component
+public class BookBatchWriter {
+
+    private final EntityManager entityManager;
+    private final int batchSize;
+
+    public BookBatchWriter(EntityManager entityManager,
+                           @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts the books in one transaction. Their IDs are set once this method returns.
+     *
+     * @param books the new books
+     */
+    @Transactional
+    public void insert(List<Book> books) {
+        for (int i = 0; i < books.size(); i++) {
+            entityManager.persist(books.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+    }
+
+    /**
+     * Applies the changes to the given books. Their version is incremented.
+     *
+     * @param ids     the IDs of the books to update
+     * @param changes the changes to apply
+     * @return the number of books updated
+     */
+    @Transactional
+    public int update(List<Long> ids, BookChanges changes) {
+        var criteriaBuilder = entityManager.getCriteriaBuilder();
+        var update = criteriaBuilder.createCriteriaUpdate(Book.class);
+        var book = update.from(Book.class);
+        if (changes.author() != null) {
+            update.set(book.<String>get("author"), changes.author());
+        }
+        if (changes.price() != null) {
+            update.set(book.<BigDecimal>get("price"), changes.price());
+        }
+        if (changes.rank() != null) {
+            update.set(book.<Integer>get("rank"), changes.rank());
+        }
+        update.set(book.<Long>get("version"), criteriaBuilder.sum(book.<Long>get("version"), 1L));
+        update.where(book.get("id").in(ids));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    /**
+     * Deletes the given books
+     *
+     * @param ids the IDs of the books to delete
+     * @return the number of books deleted
+     */
+    @Transactional
+    public int delete(List<Long> ids) {
+        return entityManager.createQuery("delete from Book b where b.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
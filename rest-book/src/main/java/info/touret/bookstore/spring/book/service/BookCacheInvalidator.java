@@ -0,0 +1,214 @@
+package info.touret.bookstore.spring.book.service;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Invalidates the books cache of all the rest-book instances.
+ * <p>
+ * The entries are evicted locally and, if <code>book.cache.broadcast.enabled</code> is set, the invalidation is broadcast to the other instances using PostgreSQL <code>LISTEN/NOTIFY</code>.
+ * Every instance listens to the <code>book_cache_invalidation</code> channel on a dedicated connection, taken from the pool for the whole application lifetime.
+ * If this connection is lost, the whole local cache is cleared as some invalidations may have been missed.
+ * <p>
+ * A reader may have loaded the previous version of a book just before the change is committed and put it in the cache just after the eviction.
+ * Therefore, the entries are evicted several times: when asked, once the current transaction (if any) is committed, then again after <code>book.cache.eviction_delay_ms</code>.
+ * With the broadcast, the notification is also received by the sending instance, which evicts the entries once more.
+ *
+ * @see BookService#findBookById(Long)
+ */
+@Component
+public class BookCacheInvalidator implements SmartLifecycle {
+
+    public static final String BOOKS_CACHE = "books";
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookCacheInvalidator.class);
+    private static final String CHANNEL = "book_cache_invalidation";
+    private static final String ALL_ENTRIES = "*";
+    private static final int POLL_TIMEOUT_MS = 1000;
+    /**
+     * The PostgreSQL notification payloads must be shorter than 8000 bytes
+     */
+    private static final int MAX_PAYLOAD_LENGTH = 7999;
+
+    private final CacheManager cacheManager;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean broadcast;
+    private final long evictionDelayInMs;
+    private final ScheduledExecutorService delayedEvictions;
+    private volatile boolean running;
+    private Thread listener;
+
+    public BookCacheInvalidator(CacheManager cacheManager,
+                                DataSource dataSource,
+                                JdbcTemplate jdbcTemplate,
+                                @Value("${book.cache.broadcast.enabled:false}") boolean broadcast,
+                                @Value("${book.cache.eviction_delay_ms:500}") long evictionDelayInMs) {
+        this.cacheManager = cacheManager;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.broadcast = broadcast;
+        this.evictionDelayInMs = evictionDelayInMs;
+        var threadFactory = new CustomizableThreadFactory("book-cache-eviction-");
+        threadFactory.setDaemon(true);
+        this.delayedEvictions = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    /**
+     * Evicts a book from the cache of all the instances
+     *
+     * @param id the book ID
+     */
+    public void invalidate(Long id) {
+        booksCache().evict(id);
+        afterCommit(() -> {
+            booksCache().evict(id);
+            notifyInstances(String.valueOf(id));
+            delayedEvictions.schedule(() -> booksCache().evict(id), evictionDelayInMs, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Evicts several books from the cache of all the instances with one notification.
+     * If there are too many IDs to fit in the notification, the cache of the other instances is cleared.
+     *
+     * @param ids the book IDs
+     */
+    public void invalidate(Collection<Long> ids) {
+        var cache = booksCache();
+        ids.forEach(cache::evict);
+        var payload = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        afterCommit(() -> {
+            ids.forEach(cache::evict);
+            notifyInstances(payload.length() > MAX_PAYLOAD_LENGTH ? ALL_ENTRIES : payload);
+            delayedEvictions.schedule(() -> ids.forEach(cache::evict), evictionDelayInMs, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Clears the cache of all the instances
+     */
+    public void invalidateAll() {
+        booksCache().clear();
+        afterCommit(() -> {
+            booksCache().clear();
+            notifyInstances(ALL_ENTRIES);
+            delayedEvictions.schedule(() -> booksCache().clear(), evictionDelayInMs, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Runs the action once the current transaction is committed, or right now if there is no transaction
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void notifyInstances(String payload) {
+        if (broadcast) {
+            jdbcTemplate.queryForList("select pg_notify(?, ?)", CHANNEL, payload);
+        }
+    }
+
+    private Cache booksCache() {
+        return Objects.requireNonNull(cacheManager.getCache(BOOKS_CACHE));
+    }
+
+    @Override
+    public void start() {
+        if (!broadcast) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "book-cache-invalidation");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        delayedEvictions.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @SuppressWarnings("java:S2142")
+    private void listen() {
+        while (running) {
+            try (var connection = dataSource.getConnection()) {
+                try (var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                LOGGER.info("Listening to the book cache invalidations");
+                var pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    var notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (var notification : notifications) {
+                            evict(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    LOGGER.warn("Book cache invalidation listener disconnected, clearing the cache: {}", e.getMessage());
+                    booksCache().clear();
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(POLL_TIMEOUT_MS);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void evict(String payload) {
+        if (ALL_ENTRIES.equals(payload)) {
+            booksCache().clear();
+        } else {
+            for (var id : payload.split(",")) {
+                booksCache().evict(Long.valueOf(id));
+            }
+        }
+    }
+}
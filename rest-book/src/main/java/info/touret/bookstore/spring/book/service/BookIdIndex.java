@@ -0,0 +1,313 @@
+package info.touret.bookstore.spring.book.service;
+
+import info.touret.bookstore.spring.book.repository.BookRepository;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of all the book IDs stored in the database.
+ * <p>
+ * The IDs are stored as primitive longs in an open addressing hash table.
+ * The index is loaded at startup from the database and then kept up to date by {@link BookService} on every register/update/delete.
+ * As an ID is stored only once, the size of the index is the number of books: it is used to serve the book count without scanning the table.
+ * <p>
+ * The index is reconciled with the database every <code>book.count.reconciliation_interval_ms</code> and reloaded if they differ
+ * (e.g., the table has been modified by another rest-book instance or directly in the database).
+ * The reconciliation is skipped while the application is not accepting all the requests: the database may be under maintenance.
+ * The following metrics are exposed: <code>books.count</code> and <code>books.count.drift</code> (the difference between the database and the index found by the last reconciliation).
+ *
+ * @see BookService#findRandomBook()
+ * @see BookService#count()
+ */
+@Component
+public class BookIdIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookIdIndex.class);
+
+    private final BookRepository bookRepository;
+    private final MaintenanceDrain maintenanceDrain;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong drift = new AtomicLong();
+
+    // Guarded by the lock
+    private LongHashSet ids = new LongHashSet();
+    /**
+     * Changes made while a load is running, replayed on the fresh table before it replaces the current one: IDs added, and removed IDs negated. Null if no load is running.
+     * Guarded by the lock.
+     */
+    private List<Long> changesDuringLoad;
+    private volatile boolean loaded;
+
+    public BookIdIndex(BookRepository bookRepository, @Lazy MaintenanceDrain maintenanceDrain, MeterRegistry meterRegistry) {
+        this.bookRepository = bookRepository;
+        this.maintenanceDrain = maintenanceDrain;
+        Gauge.builder("books.count", this, BookIdIndex::size)
+                .description("Number of books")
+                .register(meterRegistry);
+        Gauge.builder("books.count.drift", drift, AtomicLong::get)
+                .description("Difference between the number of books stored in the database and in the index, found by the last reconciliation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Seeds the index once the application is started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void seed() {
+        load();
+    }
+
+    /**
+     * (Re)loads all the IDs from the database.
+     * The rows are streamed into a new table which replaces the current one at the end: the index stays readable during the load.
+     * The IDs added or removed meanwhile are recorded and applied to the new table before the swap.
+     */
+    @Transactional(readOnly = true)
+    public void reload() {
+        load();
+    }
+
+    /**
+     * Compares the number of IDs with the number of books stored in the database and reloads the index if they differ
+     */
+    @Scheduled(initialDelayString = "${book.count.reconciliation_interval_ms:300000}", fixedDelayString = "${book.count.reconciliation_interval_ms:300000}")
+    @Transactional(readOnly = true)
+    public void reconcile() {
+        if (maintenanceDrain.getPhase() != MaintenanceDrain.Phase.ACCEPTING) {
+            return;
+        }
+        var difference = bookRepository.count() - size();
+        drift.set(difference);
+        if (difference != 0) {
+            LOGGER.warn("The book ID index is out of sync with the database ({} books), reloading it", difference);
+            load();
+        }
+    }
+
+    private synchronized void load() {
+        // Recorded before opening the cursor: a change committed after the read snapshot is replayed, replaying one already read is harmless
+        lock.writeLock().lock();
+        try {
+            changesDuringLoad = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        var fresh = new LongHashSet();
+        try (var stream = bookRepository.streamAllIds()) {
+            stream.forEach(fresh::add);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringLoad = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            for (long change : changesDuringLoad) {
+                if (change > 0) {
+                    fresh.add(change);
+                } else {
+                    fresh.remove(-change);
+                }
+            }
+            changesDuringLoad = null;
+            ids = fresh;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Book ID index loaded with {} IDs", fresh.size());
+    }
+
+    /**
+     * @return true if the index has already been loaded from the database
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return the number of IDs stored in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Picks at random one ID
+     *
+     * @return a random ID or an empty value if the index is empty
+     */
+    public OptionalLong pickRandom() {
+        lock.readLock().lock();
+        try {
+            return ids.pickRandom();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an ID to the index. Adding an existing ID has no effect.
+     *
+     * @param id the book ID
+     */
+    public void add(long id) {
+        lock.writeLock().lock();
+        try {
+            ids.add(id);
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an ID from the index. Removing an unknown ID has no effect.
+     *
+     * @param id the book ID
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            ids.remove(id);
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(-id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Set of positive longs backed by a linear probing hash table.
+     * <p>
+     * Picking a random element is done by sampling random slots until an occupied one is found.
+     * As the load factor is kept between 1/8 and 1/2, it costs O(1) on average and every element has the same probability to be picked.
+     * This class is not thread safe.
+     */
+    static final class LongHashSet {
+        /**
+         * Marks an empty slot. IDs are generated by the database and are always positive.
+         */
+        private static final long EMPTY = 0L;
+        private static final int MIN_CAPACITY = 16;
+
+        private long[] table = new long[MIN_CAPACITY];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        OptionalLong pickRandom() {
+            if (size == 0) {
+                return OptionalLong.empty();
+            }
+            var random = ThreadLocalRandom.current();
+            long id;
+            do {
+                id = table[random.nextInt(table.length)];
+            } while (id == EMPTY);
+            return OptionalLong.of(id);
+        }
+
+        boolean contains(long id) {
+            return id != EMPTY && table[slotOf(id, table)] == id;
+        }
+
+        void add(long id) {
+            if (id <= EMPTY) {
+                throw new IllegalArgumentException("Invalid book ID: " + id);
+            }
+            var slot = slotOf(id, table);
+            if (table[slot] == id) {
+                return;
+            }
+            table[slot] = id;
+            size++;
+            if (size > table.length / 2) {
+                resize(table.length * 2);
+            }
+        }
+
+        void remove(long id) {
+            if (!contains(id)) {
+                return;
+            }
+            var mask = table.length - 1;
+            var hole = slotOf(id, table);
+            table[hole] = EMPTY;
+            size--;
+            // Backward shift deletion: moves the following entries of the cluster up to keep their probe sequences unbroken
+            var next = (hole + 1) & mask;
+            while (table[next] != EMPTY) {
+                var home = hash(table[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    table[hole] = table[next];
+                    table[next] = EMPTY;
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            if (table.length > MIN_CAPACITY && size < table.length / 8) {
+                resize(table.length / 2);
+            }
+        }
+
+        private void resize(int capacity) {
+            var newTable = new long[capacity];
+            for (long id : table) {
+                if (id != EMPTY) {
+                    newTable[slotOf(id, newTable)] = id;
+                }
+            }
+            table = newTable;
+        }
+
+        /**
+         * @return the slot holding the given ID or the empty slot where it should be inserted
+         */
+        private static int slotOf(long id, long[] table) {
+            var mask = table.length - 1;
+            var slot = hash(id) & mask;
+            while (table[slot] != EMPTY && table[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int hash(long id) {
+            var h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
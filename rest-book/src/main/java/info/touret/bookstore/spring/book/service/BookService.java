@@ -1,27 +1,56 @@
 package info.touret.bookstore.spring.book.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import info.touret.bookstore.spring.book.BookConfiguration;
+import info.touret.bookstore.spring.book.dto.BookBatchItemResult;
+import info.touret.bookstore.spring.book.dto.BookChanges;
+import info.touret.bookstore.spring.book.dto.BookFilter;
+import info.touret.bookstore.spring.book.dto.BookSelection;
+import info.touret.bookstore.spring.book.dto.BookStats;
+import info.touret.bookstore.spring.book.dto.BookSummary;
+import info.touret.bookstore.spring.book.dto.BulkOperationResult;
+import info.touret.bookstore.spring.book.dto.CatalogVersion;
 import info.touret.bookstore.spring.book.dto.IsbnNumbers;
 import info.touret.bookstore.spring.book.entity.Book;
 import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import info.touret.bookstore.spring.book.exception.BookVersionMismatchException;
+import info.touret.bookstore.spring.book.exception.InvalidBulkOperationException;
+import info.touret.bookstore.spring.book.journal.BookJournal;
 import info.touret.bookstore.spring.book.repository.BookRepository;
+import info.touret.bookstore.spring.book.search.BookSearchIndex;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.security.SecureRandom;
-import java.time.Instant;
+import jakarta.validation.Validator;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 /**
@@ -31,36 +60,113 @@ import java.util.stream.StreamSupport;
 @Validated
 public class BookService {
 
+    /**
+     * Expected version of a book which must exist, whatever its version (<code>If-Match: *</code>)
+     */
+    public static final long ANY_VERSION = -1L;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BookService.class);
+    /**
+     * Number of IDs picked from the index which may be missing in the database (e.g., removed by another instance) before reloading it
+     */
+    private static final int RANDOM_PICK_ATTEMPTS = 3;
     private final BookRepository bookRepository;
+    private final BookIdIndex bookIdIndex;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookStatistics bookStatistics;
+    private final CatalogSnapshot catalogSnapshot;
+    private final IsbnNumbersPool isbnNumbersPool;
+    private final HedgedNumbersClient hedgedNumbersClient;
+    private final BookJournal bookJournal;
+    private final BookCacheInvalidator bookCacheInvalidator;
+    private final BookBatchWriter bookBatchWriter;
+    private final Validator validator;
+    private final EntityManager entityManager;
     private final RestTemplate restTemplate;
 
     private final CircuitBreakerFactory circuitBreakerFactory;
     private final String isbnServiceURL;
+    private final int bulkChunkSize;
+    private final Timer searchTimer;
 
     public BookService(BookRepository bookRepository,
+                       BookIdIndex bookIdIndex,
+                       BookSearchIndex bookSearchIndex,
+                       BookStatistics bookStatistics,
+                       CatalogSnapshot catalogSnapshot,
+                       IsbnNumbersPool isbnNumbersPool,
+                       HedgedNumbersClient hedgedNumbersClient,
+                       BookJournal bookJournal,
+                       BookCacheInvalidator bookCacheInvalidator,
+                       BookBatchWriter bookBatchWriter,
+                       Validator validator,
+                       EntityManager entityManager,
                        RestTemplate restTemplate,
                        @Value("${booknumbers.api.url}") String isbnServiceURL,
+                       @Value("${book.bulk.chunk_size:1000}") int bulkChunkSize,
+                       MeterRegistry meterRegistry,
                        @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") CircuitBreakerFactory circuitBreakerFactory) {
         this.bookRepository = bookRepository;
+        this.bookIdIndex = bookIdIndex;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookStatistics = bookStatistics;
+        this.catalogSnapshot = catalogSnapshot;
+        this.isbnNumbersPool = isbnNumbersPool;
+        this.hedgedNumbersClient = hedgedNumbersClient;
+        this.bookJournal = bookJournal;
+        this.bookCacheInvalidator = bookCacheInvalidator;
+        this.bookBatchWriter = bookBatchWriter;
+        this.validator = validator;
+        this.entityManager = entityManager;
         this.restTemplate = restTemplate;
         this.isbnServiceURL = isbnServiceURL;
+        this.bulkChunkSize = bulkChunkSize;
+        this.searchTimer = Timer.builder("books.search")
+                .description("Time spent searching books, including the load of the summaries")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
 
         this.circuitBreakerFactory = circuitBreakerFactory;
 
     }
 
     /**
-     * Gets all the different IDS stored in the database and pick at random one book among these.
+     * Picks at random one ID from the in-memory index and gets the corresponding book.
+     * If the picked IDs are not found in the database several times in a row, the index is reloaded.
+     * In read-only maintenance, the book is picked from the catalog snapshot.
      *
      * @return A random book
+     * @see BookIdIndex
      */
     public Book findRandomBook() {
-        var ids = bookRepository.findAllIds();
-        final var size = ids.size();
-        var aLong = ids.get(new SecureRandom().nextInt(size));
-        return findBookById(aLong).orElseThrow(IllegalStateException::new);
+        var snapshot = catalogSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.findRandom().orElseThrow(IllegalStateException::new);
+        }
+        if (!bookIdIndex.isLoaded()) {
+            bookIdIndex.reload();
+        }
+        for (int attempt = 0; attempt < RANDOM_PICK_ATTEMPTS; attempt++) {
+            var book = pickRandomBook();
+            if (book.isPresent()) {
+                return book.get();
+            }
+        }
+        LOGGER.warn("The book ID index is out of sync with the database, reloading it");
+        bookIdIndex.reload();
+        return pickRandomBook().orElseThrow(IllegalStateException::new);
+    }
+
+    private Optional<Book> pickRandomBook() {
+        var id = bookIdIndex.pickRandom();
+        if (id.isEmpty()) {
+            return Optional.empty();
+        }
+        var book = findBookById(id.getAsLong());
+        if (book.isEmpty()) {
+            bookIdIndex.remove(id.getAsLong());
+        }
+        return book;
     }
 
 
@@ -82,20 +188,112 @@ public class BookService {
     }
 
     /**
-     * Fallback method used for serialising the payload into a JSON file
+     * Registers several books at once. The invalid books are rejected, the other ones are inserted in one transaction.
+     * All the ISBN numbers are fetched with one call to the Numbers API.
+     * Unlike {@link #registerBook(Book)}, the books are not journaled if the Numbers API is not reachable.
+     *
+     * @param books the books to register
+     * @return the result of every book, in the same order
+     * @throws ApiCallTimeoutException the Numbers API is not reachable, no book has been registered
+     * @see BookBatchWriter
+     */
+    public List<BookBatchItemResult> registerBooks(List<Book> books) {
+        var results = new BookBatchItemResult[books.size()];
+        var validIndexes = new ArrayList<Integer>();
+        for (int i = 0; i < books.size(); i++) {
+            var violations = validator.validate(books.get(i));
+            if (violations.isEmpty()) {
+                books.get(i).setId(null);
+                validIndexes.add(i);
+            } else {
+                results[i] = BookBatchItemResult.rejected(i, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .collect(Collectors.joining(", ")));
+            }
+        }
+        if (!validIndexes.isEmpty()) {
+            var isbnNumbers = fetchIsbnNumbers(validIndexes.size());
+            var newBooks = new ArrayList<Book>(validIndexes.size());
+            for (int i = 0; i < validIndexes.size(); i++) {
+                var index = validIndexes.get(i);
+                if (i < isbnNumbers.size()) {
+                    books.get(index).setIsbn13(isbnNumbers.get(i).getIsbn13());
+                    books.get(index).setIsbn10(isbnNumbers.get(i).getIsbn10());
+                    newBooks.add(books.get(index));
+                } else {
+                    results[index] = BookBatchItemResult.rejected(index, "No ISBN numbers available");
+                }
+            }
+            bookBatchWriter.insert(newBooks);
+            for (var index : validIndexes) {
+                if (results[index] == null) {
+                    var id = books.get(index).getId();
+                    bookIdIndex.add(id);
+                    bookSearchIndex.index(books.get(index));
+                    bookStatistics.put(books.get(index));
+                    results[index] = BookBatchItemResult.created(index, id);
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<IsbnNumbers> fetchIsbnNumbers(int count) {
+        return circuitBreakerFactory.create("slowNumbers").<List<IsbnNumbers>>run(
+                () -> {
+                    var isbnNumbers = restTemplate.getForEntity(isbnServiceURL + "/batch?count={count}", IsbnNumbers[].class, count).getBody();
+                    return isbnNumbers != null ? List.of(isbnNumbers) : List.<IsbnNumbers>of();
+                },
+                throwable -> {
+                    throw new ApiCallTimeoutException("Numbers not accessible", throwable);
+                }
+        );
+    }
+
+    /**
+     * Registers a book previously stored in the journal. Unlike {@link #registerBook(Book)}, the book is not journaled again if the underlying API is still not reachable.
+     *
+     * @param book the journaled book
+     * @return the book saved
+     * @throws ApiCallTimeoutException      the Numbers API is still not reachable
+     * @throws ConstraintViolationException the book is not valid
+     * @see info.touret.bookstore.spring.book.journal.BookJournalReplayer
+     */
+    public Book replayBook(Book book) {
+        var violations = validator.validate(book);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return circuitBreakerFactory.create("slowNumbers").run(
+                () -> persistBook(book),
+                throwable -> {
+                    if (throwable instanceof CallNotPermittedException || throwable instanceof TimeoutException || throwable instanceof RestClientException
+                            || throwable instanceof ApiCallTimeoutException) {
+                        throw new ApiCallTimeoutException("Numbers not accessible", throwable);
+                    }
+                    // Kept as is: the replayer tells the invalid books from the failures of the database
+                    if (throwable instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new IllegalStateException("Cannot replay the book", throwable);
+                }
+        );
+    }
+
+    /**
+     * Fallback method used for appending the payload to the journal. It will be registered again once the Numbers API is reachable.
      *
      * @param book the current book
      * @return the current book
-     * @throws IllegalStateException   can't store the current file
+     * @throws IllegalStateException   can't store the current book
      * @throws ApiCallTimeoutException normal behaviour.
+     * @see BookJournal
      */
     // We have no ISBN numbers, we cannot persist in the database
     private Book fallbackPersistBook(Book book) {
-        try (var out = new PrintWriter("book-" + Instant.now().toEpochMilli() + ".json")) {
-            var objectMapper = new ObjectMapper();
-            var bookJson = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(book);
-            out.println(bookJson);
-        } catch (FileNotFoundException | JsonProcessingException e) {
+        try {
+            bookJournal.append(book);
+        } catch (UncheckedIOException e) {
             LOGGER.error(e.getMessage(), e);
             throw new IllegalStateException("Cannot serialize data");
         }
@@ -108,32 +306,314 @@ public class BookService {
      * @return all the books stored in the database
      */
     public List<Book> findAllBooks() {
+        var snapshot = catalogSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.findAll();
+        }
         return StreamSupport.stream(bookRepository.findAll().spliterator(), false).toList();
     }
 
+    /**
+     * Finds a page of books ordered by ID
+     *
+     * @param filter  the filter criteria
+     * @param afterId the ID of the last book of the previous page, 0 to get the first page
+     * @param limit   the maximum number of books
+     * @return the page of books
+     * @see info.touret.bookstore.spring.book.repository.BookFilterRepository
+     */
+    public Slice<Book> findBooks(BookFilter filter, long afterId, int limit) {
+        var snapshot = catalogSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.find(filter, afterId, limit);
+        }
+        if (filter.isEmpty()) {
+            return bookRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+        }
+        // One more book is fetched for knowing whether there is a next page
+        return toSlice(bookRepository.findByFilter(filter, afterId, limit + 1), limit);
+    }
+
+    /**
+     * Finds the summary of all books. Only the columns of the summary are read.
+     *
+     * @return the summaries of all the books, ordered by ID
+     */
+    public List<BookSummary> findAllBookSummaries() {
+        var snapshot = catalogSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.findAll().stream().map(BookSummary::of).toList();
+        }
+        return bookRepository.findAllSummaries();
+    }
+
+    /**
+     * Finds a page of book summaries ordered by ID. Only the columns of the summary are read.
+     *
+     * @param filter  the filter criteria
+     * @param afterId the ID of the last book of the previous page, 0 to get the first page
+     * @param limit   the maximum number of books
+     * @return the page of book summaries
+     */
+    public Slice<BookSummary> findBookSummaries(BookFilter filter, long afterId, int limit) {
+        var snapshot = catalogSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.find(filter, afterId, limit).map(BookSummary::of);
+        }
+        if (filter.isEmpty()) {
+            return bookRepository.findSummariesByIdGreaterThan(afterId, PageRequest.ofSize(limit));
+        }
+        return toSlice(bookRepository.findSummariesByFilter(filter, afterId, limit + 1), limit);
+    }
+
+    private static <T> Slice<T> toSlice(List<T> content, int limit) {
+        var hasNext = content.size() > limit;
+        return new SliceImpl<>(hasNext ? content.subList(0, limit) : content, PageRequest.ofSize(limit), hasNext);
+    }
+
+    /**
+     * Searches the books whose title, author or description contain the words of the query. The IDs are ranked by the search index,
+     * then only the summaries of the page are read from the database.
+     *
+     * @param query the words to search
+     * @param page  the page number, starting from 0
+     * @param size  the page size
+     * @return the page of book summaries, the most relevant first
+     * @see BookSearchIndex
+     */
+    public Page<BookSummary> searchBooks(String query, int page, int size) {
+        return searchTimer.record(() -> {
+            var ids = bookSearchIndex.search(query, PageRequest.of(page, size));
+            if (ids.isEmpty()) {
+                return new PageImpl<BookSummary>(List.of(), ids.getPageable(), ids.getTotalElements());
+            }
+            var summaries = bookRepository.findSummariesByIdIn(ids.getContent()).stream()
+                    .collect(Collectors.toMap(BookSummary::id, Function.identity()));
+            // A book removed by another instance may still be in the index
+            var rankedSummaries = ids.getContent().stream()
+                    .filter(summaries::containsKey)
+                    .map(summaries::get)
+                    .toList();
+            return new PageImpl<>(rankedSummaries, ids.getPageable(), ids.getTotalElements());
+        });
+    }
+
+    /**
+     * Reads all the books one by one from a database cursor. Each book is detached once consumed: the memory used stays the same whatever the size of the catalog is.
+     *
+     * @param consumer called for every book, ordered by ID
+     */
+    @Transactional(readOnly = true)
+    public void exportBooks(Consumer<Book> consumer) {
+        try (var books = bookRepository.streamAll()) {
+            books.forEach(book -> {
+                consumer.accept(book);
+                entityManager.detach(book);
+            });
+        }
+    }
+
+    /**
+     * Counts the books from the ID index: the table is not scanned
+     *
+     * @return the number of books
+     * @see BookIdIndex#reconcile()
+     */
     public long count() {
-        return bookRepository.count();
+        var snapshot = catalogSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.count();
+        }
+        if (!bookIdIndex.isLoaded()) {
+            bookIdIndex.reload();
+        }
+        return bookIdIndex.size();
     }
 
+    /**
+     * Gets the statistics of the catalog from memory: the database is not read
+     *
+     * @return the statistics of the catalog
+     * @see BookStatistics
+     */
+    public BookStats getStatistics() {
+        return bookStatistics.get();
+    }
+
+    /**
+     * Gets the fingerprint of the catalog from memory: it is maintained with the statistics, the table is not scanned.
+     * The changes made by another instance are taken into account by the next reconciliation of the statistics.
+     *
+     * @return the fingerprint of the catalog
+     * @see CatalogVersion
+     * @see BookStatistics#reconcile()
+     */
+    public CatalogVersion findCatalogVersion() {
+        var snapshot = catalogSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.catalogVersion();
+        }
+        return bookStatistics.catalogVersion();
+    }
+
+    /**
+     * Finds a book from its ID. The books found are cached, the missing ones are not.
+     *
+     * @param id the book ID
+     * @return the book
+     * @see BookCacheInvalidator
+     */
+    @Cacheable(cacheNames = BookCacheInvalidator.BOOKS_CACHE, unless = "#result == null")
     public Optional<Book> findBookById(Long id) {
+        var snapshot = catalogSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.findById(id);
+        }
         return bookRepository.findById(id);
     }
 
-    // To be invistgated
-    public Book updateBook(@Valid Book book) {
-        return bookRepository.save(book);
+    /**
+     * Finds the excerpt of a book. Only the excerpt column is read.
+     *
+     * @param id the book ID
+     * @return the excerpt, empty if the book has no description
+     */
+    public Optional<String> findBookExcerpt(Long id) {
+        return bookRepository.findExcerptById(id);
+    }
+
+    /**
+     * Updates a book. If an expected version is provided, the book is updated only if it has not been modified since (optimistic locking).
+     * Otherwise, the last update wins.
+     *
+     * @param book            the book to update
+     * @param expectedVersion the version of the book known by the client, {@link #ANY_VERSION} if the book must only exist, or null
+     * @return the book updated
+     * @throws BookVersionMismatchException the book has been modified since the expected version, or does not exist while a version is expected
+     */
+    public Book updateBook(@Valid Book book, Long expectedVersion) {
+        if (book.getId() != null) {
+            var currentVersion = bookRepository.findVersionById(book.getId());
+            if (expectedVersion != null && (currentVersion.isEmpty() || (expectedVersion != ANY_VERSION && currentVersion.get() != expectedVersion.longValue()))) {
+                throw new BookVersionMismatchException("The book " + book.getId() + " has been modified or removed");
+            }
+            book.setVersion(currentVersion.orElse(0L));
+        } else if (expectedVersion != null) {
+            throw new BookVersionMismatchException("A new book has no version");
+        }
+        Book savedBook;
+        try {
+            savedBook = bookRepository.save(book);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new BookVersionMismatchException("The book " + book.getId() + " has been modified concurrently", e);
+        }
+        bookIdIndex.add(savedBook.getId());
+        bookSearchIndex.index(savedBook);
+        bookStatistics.put(savedBook);
+        bookCacheInvalidator.invalidate(savedBook.getId());
+        return savedBook;
     }
 
     public void deleteBook(Long id) {
         bookRepository.deleteById(id);
+        bookIdIndex.remove(id);
+        bookSearchIndex.remove(List.of(id));
+        bookStatistics.remove(List.of(id));
+        bookCacheInvalidator.invalidate(id);
     }
 
+    /**
+     * Updates several books at once, chunk by chunk (<code>book.bulk.chunk_size</code>). Each chunk is updated in its own transaction with one UPDATE statement.
+     *
+     * @param selection the books to update
+     * @param changes   the changes to apply
+     * @return the number of books updated
+     * @throws InvalidBulkOperationException the selection is empty or ambiguous, or there is no change
+     * @see BookBatchWriter#update(List, BookChanges)
+     */
+    public BulkOperationResult updateBooks(BookSelection selection, BookChanges changes) {
+        if (changes.isEmpty()) {
+            throw new InvalidBulkOperationException("No change provided");
+        }
+        return runInChunks("update", selection, ids -> {
+            var updated = bookBatchWriter.update(ids, changes);
+            if (changes.author() != null) {
+                bookSearchIndex.reindex(ids);
+            }
+            bookStatistics.apply(ids, changes);
+            bookCacheInvalidator.invalidate(ids);
+            return updated;
+        });
+    }
+
+    /**
+     * Deletes several books at once, chunk by chunk (<code>book.bulk.chunk_size</code>). Each chunk is deleted in its own transaction with one DELETE statement.
+     *
+     * @param selection the books to delete
+     * @return the number of books deleted
+     * @throws InvalidBulkOperationException the selection is empty or ambiguous
+     * @see BookBatchWriter#delete(List)
+     */
+    public BulkOperationResult deleteBooks(BookSelection selection) {
+        return runInChunks("delete", selection, ids -> {
+            var deleted = bookBatchWriter.delete(ids);
+            ids.forEach(bookIdIndex::remove);
+            bookSearchIndex.remove(ids);
+            bookStatistics.remove(ids);
+            bookCacheInvalidator.invalidate(ids);
+            return deleted;
+        });
+    }
+
+    /**
+     * Splits the selection into chunks of IDs. The IDs matching filter criteria are fetched chunk by chunk using keyset pagination.
+     */
+    private BulkOperationResult runInChunks(String operation, BookSelection selection, ToIntFunction<List<Long>> chunkOperation) {
+        if (selection.hasIds() == selection.hasFilter()) {
+            throw new InvalidBulkOperationException("Either IDs or filter criteria must be provided");
+        }
+        long affected = 0;
+        var chunks = 0;
+        if (selection.hasIds()) {
+            var ids = selection.ids().stream().distinct().sorted().toList();
+            for (int from = 0; from < ids.size(); from += bulkChunkSize) {
+                affected += chunkOperation.applyAsInt(ids.subList(from, Math.min(from + bulkChunkSize, ids.size())));
+                chunks++;
+                LOGGER.info("Bulk {}: {} books processed out of {}", operation, affected, ids.size());
+            }
+        } else {
+            var filter = selection.toFilter();
+            var ids = bookRepository.findIdsByFilter(filter, 0, bulkChunkSize);
+            while (!ids.isEmpty()) {
+                affected += chunkOperation.applyAsInt(ids);
+                chunks++;
+                LOGGER.info("Bulk {}: {} books processed", operation, affected);
+                ids = bookRepository.findIdsByFilter(filter, ids.getLast(), bulkChunkSize);
+            }
+        }
+        LOGGER.info("Bulk {} done: {} books in {} chunks", operation, affected, chunks);
+        return new BulkOperationResult(affected, chunks);
+    }
+
+    /**
+     * Assigns ISBN numbers to the book and stores it. The numbers are taken from the pool or, if it is empty, requested to the Numbers API instances with hedged requests.
+     *
+     * @param book the book to persist
+     * @return the book saved
+     * @see IsbnNumbersPool
+     * @see HedgedNumbersClient
+     */
     private Book persistBook(Book book) {
-        var isbnNumbers = restTemplate.getForEntity(isbnServiceURL, IsbnNumbers.class).getBody();
+        var isbnNumbers = isbnNumbersPool.take()
+                .orElseGet(() -> hedgedNumbersClient.get("", IsbnNumbers.class));
         if (isbnNumbers != null) {
             book.setIsbn13(isbnNumbers.getIsbn13());
             book.setIsbn10(isbnNumbers.getIsbn10());
         }
-        return bookRepository.save(book);
+        var savedBook = bookRepository.save(book);
+        bookIdIndex.add(savedBook.getId());
+        bookSearchIndex.index(savedBook);
+        bookStatistics.put(savedBook);
+        return savedBook;
     }
 }
@@ -0,0 +1,301 @@
+package info.touret.bookstore.spring.book.service;
+
+import info.touret.bookstore.spring.book.dto.BookChanges;
+import info.touret.bookstore.spring.book.dto.BookStats;
+import info.touret.bookstore.spring.book.dto.BookStatsRow;
+import info.touret.bookstore.spring.book.dto.CatalogVersion;
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.repository.BookRepository;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Statistics of the catalog, maintained in memory.
+ * <p>
+ * The aggregates (count, sum/min/max of the prices, rank histogram, counts by year and by author) are loaded at startup from the database,
+ * then updated by {@link BookService} on every register/update/delete: the contribution of the previous state of the book is removed and the new one is added.
+ * For that purpose, the few columns taken into account are kept for every book. The prices are counted in a sorted map, so that the lowest and the highest one
+ * are still known when a book is removed.
+ * <p>
+ * Reading the statistics never touches the database: the last snapshot is returned as long as no book has been modified since.
+ * The fingerprint of the catalog, used for the ETags of the book lists, is maintained the same way.
+ * <p>
+ * The statistics are reconciled with the database every <code>book.stats.reconciliation_interval_ms</code>: they are reloaded if the fingerprint of the catalog differs
+ * (e.g., the table has been modified by another rest-book instance or directly in the database). The reloads are counted by the <code>books.stats.reloads</code> metric.
+ * No reconciliation is run during a drain or a maintenance, the read-only one included.
+ *
+ * @see BookService#getStatistics()
+ * @see CatalogVersion
+ */
+@Component
+public class BookStatistics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookStatistics.class);
+    private static final int MAX_RANK = 10;
+
+    private final BookRepository bookRepository;
+    private final MaintenanceDrain maintenanceDrain;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Counter reloadCounter;
+
+    // Guarded by the lock
+    private Aggregates aggregates = new Aggregates();
+    /**
+     * Last statistics computed, reset on every change
+     */
+    private volatile BookStats snapshot;
+
+    public BookStatistics(BookRepository bookRepository, @Lazy MaintenanceDrain maintenanceDrain, MeterRegistry meterRegistry) {
+        this.bookRepository = bookRepository;
+        this.maintenanceDrain = maintenanceDrain;
+        this.reloadCounter = Counter.builder("books.stats.reloads")
+                .description("Number of times the statistics have been found out of sync with the database and reloaded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the statistics once the application is started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void seed() {
+        load();
+    }
+
+    /**
+     * (Re)loads the statistics from the database. They are computed apart and replace the current ones at the end: they stay readable during the load.
+     */
+    @Transactional(readOnly = true)
+    public void reload() {
+        load();
+    }
+
+    /**
+     * Computes the statistics of the catalog again and replaces the current ones if their fingerprints differ
+     */
+    @Scheduled(initialDelayString = "${book.stats.reconciliation_interval_ms:300000}", fixedDelayString = "${book.stats.reconciliation_interval_ms:300000}")
+    @Transactional(readOnly = true)
+    public void reconcile() {
+        if (maintenanceDrain.getPhase() != MaintenanceDrain.Phase.ACCEPTING) {
+            return;
+        }
+        var fresh = compute();
+        var catalogVersion = fresh.catalogVersion();
+        var statisticsVersion = catalogVersion();
+        if (!catalogVersion.equals(statisticsVersion)) {
+            LOGGER.warn("The book statistics are out of sync with the database ({} instead of {}), reloading them", statisticsVersion, catalogVersion);
+            reloadCounter.increment();
+            replace(fresh);
+        }
+    }
+
+    private void load() {
+        replace(compute());
+    }
+
+    private Aggregates compute() {
+        var fresh = new Aggregates();
+        try (var rows = bookRepository.streamAllStatsRows()) {
+            rows.forEach(fresh::put);
+        }
+        return fresh;
+    }
+
+    private void replace(Aggregates fresh) {
+        lock.writeLock().lock();
+        try {
+            aggregates = fresh;
+            snapshot = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Book statistics loaded with {} books", fresh.rows.size());
+    }
+
+    /**
+     * @return the statistics of the catalog
+     */
+    public BookStats get() {
+        var stats = snapshot;
+        if (stats != null) {
+            return stats;
+        }
+        lock.readLock().lock();
+        try {
+            // The snapshot is reset under the write lock: it cannot be outdated here
+            stats = aggregates.toStats();
+            snapshot = stats;
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the fingerprint of the books taken into account, kept up to date with the statistics
+     * @see BookService#findCatalogVersion()
+     */
+    public CatalogVersion catalogVersion() {
+        lock.readLock().lock();
+        try {
+            return aggregates.catalogVersion();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes into account a new or an updated book
+     *
+     * @param book the book saved
+     */
+    public void put(Book book) {
+        var row = BookStatsRow.of(book);
+        lock.writeLock().lock();
+        try {
+            aggregates.put(row);
+            snapshot = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Takes into account the changes applied by a bulk update. The unknown books are ignored.
+     *
+     * @param ids     the IDs of the books updated
+     * @param changes the changes applied
+     */
+    public void apply(Collection<Long> ids, BookChanges changes) {
+        lock.writeLock().lock();
+        try {
+            for (var id : ids) {
+                var row = aggregates.rows.get(id);
+                if (row != null) {
+                    aggregates.put(row.apply(changes));
+                }
+            }
+            snapshot = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Takes into account removed books. The unknown books are ignored.
+     *
+     * @param ids the IDs of the books removed
+     */
+    public void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(aggregates::remove);
+            snapshot = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aggregates of the catalog and the rows they are computed from. This class is not thread safe.
+     */
+    static final class Aggregates {
+        private final Map<Long, BookStatsRow> rows = new HashMap<>();
+        private final NavigableMap<BigDecimal, Long> prices = new TreeMap<>();
+        private final long[] ranks = new long[MAX_RANK + 1];
+        private final Map<Integer, Long> years = new HashMap<>();
+        private final Map<String, Long> authors = new HashMap<>();
+        private long pricedCount;
+        private BigDecimal priceSum = BigDecimal.ZERO;
+        private long checksum;
+
+        void put(BookStatsRow row) {
+            remove(row.id());
+            rows.put(row.id(), row);
+            checksum += CatalogVersion.hash(row.id(), row.version());
+            if (row.price() != null) {
+                prices.merge(row.price(), 1L, Long::sum);
+                priceSum = priceSum.add(row.price());
+                pricedCount++;
+            }
+            if (row.rank() != null && row.rank() >= 1 && row.rank() <= MAX_RANK) {
+                ranks[row.rank()]++;
+            }
+            if (row.yearOfPublication() != null) {
+                years.merge(row.yearOfPublication(), 1L, Long::sum);
+            }
+            if (row.author() != null) {
+                authors.merge(row.author(), 1L, Long::sum);
+            }
+        }
+
+        void remove(Long id) {
+            var row = rows.remove(id);
+            if (row == null) {
+                return;
+            }
+            checksum -= CatalogVersion.hash(row.id(), row.version());
+            if (row.price() != null) {
+                decrement(prices, row.price());
+                priceSum = priceSum.subtract(row.price());
+                pricedCount--;
+            }
+            if (row.rank() != null && row.rank() >= 1 && row.rank() <= MAX_RANK) {
+                ranks[row.rank()]--;
+            }
+            if (row.yearOfPublication() != null) {
+                decrement(years, row.yearOfPublication());
+            }
+            if (row.author() != null) {
+                decrement(authors, row.author());
+            }
+        }
+
+        private static <K> void decrement(Map<K, Long> counts, K key) {
+            counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+        }
+
+        /**
+         * @return the fingerprint of the books taken into account
+         */
+        CatalogVersion catalogVersion() {
+            return new CatalogVersion(rows.size(), checksum);
+        }
+
+        BookStats toStats() {
+            var rankHistogram = new LinkedHashMap<Integer, Long>();
+            for (int rank = 1; rank <= MAX_RANK; rank++) {
+                rankHistogram.put(rank, ranks[rank]);
+            }
+            var price = pricedCount == 0
+                    ? new BookStats.PriceStats(0, BigDecimal.ZERO, null, null, null)
+                    : new BookStats.PriceStats(pricedCount, priceSum, prices.firstKey(), prices.lastKey(),
+                    priceSum.divide(BigDecimal.valueOf(pricedCount), 2, RoundingMode.HALF_EVEN));
+            return new BookStats(rows.size(), price,
+                    Collections.unmodifiableMap(rankHistogram),
+                    Collections.unmodifiableMap(new TreeMap<>(years)),
+                    Collections.unmodifiableMap(new TreeMap<>(authors)));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package info.touret.bookstore.spring.book.service;
+
+import info.touret.bookstore.spring.book.dto.BookFilter;
+import info.touret.bookstore.spring.book.dto.CatalogVersion;
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Copy of the whole catalog kept in memory while the application is in read-only maintenance.
+ * <p>
+ * The snapshot is taken once the writes are drained: the books are read one by one from a database cursor and detached.
+ * As long as it is taken, {@link BookService} serves the book lists, the books, the count and the random book from it: the database can be stopped meanwhile.
+ * The snapshot is never modified (the writes are refused), it is dropped when the application is put back in service.
+ * <p>
+ * The whole books are kept, descriptions included: a book takes about 1 KB plus one or two bytes per character of its description (up to 10,000 characters).
+ * The snapshot is therefore limited to <code>maintenance.read_only.max_books</code> books (100,000 by default, i.e. about 100 MB without the descriptions):
+ * beyond, it is not taken and the read-only maintenance is cancelled. The limit must be sized with the heap and the length of the descriptions.
+ *
+ * @see info.touret.bookstore.spring.maintenance.service.MaintenanceDrain#readOnly()
+ */
+@Component
+public class CatalogSnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final int maxBooks;
+    private volatile Snapshot snapshot;
+
+    public CatalogSnapshot(BookRepository bookRepository, EntityManager entityManager,
+                           @Value("${maintenance.read_only.max_books:100000}") int maxBooks) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.maxBooks = maxBooks;
+    }
+
+    /**
+     * Loads all the books from the database. The snapshot is only used once fully loaded.
+     *
+     * @throws IllegalStateException the catalog holds more than <code>maintenance.read_only.max_books</code> books
+     */
+    @Transactional(readOnly = true)
+    public void take() {
+        var books = new TreeMap<Long, Book>();
+        try (var stream = bookRepository.streamAll()) {
+            stream.forEach(book -> {
+                if (books.size() == maxBooks) {
+                    throw new IllegalStateException("The catalog holds more than " + maxBooks + " books, it cannot be copied in memory");
+                }
+                books.put(book.getId(), book);
+                entityManager.detach(book);
+            });
+        }
+        snapshot = new Snapshot(books);
+        LOGGER.info("Catalog snapshot taken with {} books", books.size());
+    }
+
+    /**
+     * Drops the snapshot: the books are read from the database again
+     */
+    public void release() {
+        snapshot = null;
+    }
+
+    /**
+     * @return the snapshot, null if none has been taken
+     */
+    public Snapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Immutable copy of the catalog
+     */
+    public static final class Snapshot {
+        private final NavigableMap<Long, Book> books;
+        private final Long[] ids;
+        private final CatalogVersion catalogVersion;
+
+        private Snapshot(NavigableMap<Long, Book> books) {
+            this.books = Collections.unmodifiableNavigableMap(books);
+            this.ids = books.keySet().toArray(new Long[0]);
+            var checksum = books.values().stream().mapToLong(book -> CatalogVersion.hash(book.getId(), book.getVersion())).sum();
+            // Same fingerprint as the statistics: the ETags stay valid when switching to the snapshot
+            this.catalogVersion = new CatalogVersion(books.size(), checksum);
+        }
+
+        /**
+         * @return all the books, ordered by ID
+         */
+        public List<Book> findAll() {
+            return List.copyOf(books.values());
+        }
+
+        /**
+         * @param filter  the filter criteria
+         * @param afterId the ID of the last book of the previous page, 0 to get the first page
+         * @param limit   the maximum number of books
+         * @return the page of books, ordered by ID
+         */
+        public Slice<Book> find(BookFilter filter, long afterId, int limit) {
+            var content = new ArrayList<Book>(limit);
+            var hasNext = false;
+            for (var book : books.tailMap(afterId, false).values()) {
+                if (!filter.matches(book)) {
+                    continue;
+                }
+                if (content.size() == limit) {
+                    hasNext = true;
+                    break;
+                }
+                content.add(book);
+            }
+            return new SliceImpl<>(content, PageRequest.ofSize(limit), hasNext);
+        }
+
+        /**
+         * @param id the book ID
+         * @return the book
+         */
+        public Optional<Book> findById(Long id) {
+            return Optional.ofNullable(books.get(id));
+        }
+
+        /**
+         * @return a book picked at random, empty if the catalog is empty
+         */
+        public Optional<Book> findRandom() {
+            if (ids.length == 0) {
+                return Optional.empty();
+            }
+            return Optional.of(books.get(ids[ThreadLocalRandom.current().nextInt(ids.length)]));
+        }
+
+        /**
+         * @return the number of books
+         */
+        public long count() {
+            return ids.length;
+        }
+
+        /**
+         * @return the fingerprint of the snapshot
+         */
+        public CatalogVersion catalogVersion() {
+            return catalogVersion;
+        }
+    }
+}
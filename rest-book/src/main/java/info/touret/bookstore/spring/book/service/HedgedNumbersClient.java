@@ -0,0 +1,199 @@
+package info.touret.bookstore.spring.book.service;
+
+import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calls the Numbers API instances listed in <code>booknumbers.api.urls</code> (defaults to <code>booknumbers.api.url</code>) with hedged requests.
+ * <p>
+ * Every request is sent to one instance, picked in a round-robin fashion. If it has not answered after <code>booknumbers.api.hedging.delay_ms</code>, a backup request is sent to the next instance.
+ * If the first instance fails before this delay, the backup request is sent right away.
+ * The first successful answer is returned and the other request is cancelled (the thread waiting for it is interrupted, the read timeout bounds it anyway).
+ * If no instance has answered within the timeout computed by {@link AdaptiveTimeLimiter}, the call is given up.
+ * <p>
+ * The hedged requests are capped by a budget: every request earns <code>booknumbers.api.hedging.budget_percent</code>% of a hedge, and a hedge is sent only if a whole one has been earned.
+ * The hedges therefore never exceed this percentage of the traffic, even when all the instances are slow.
+ * <p>
+ * The requests run on virtual threads when <code>spring.threads.virtual.enabled</code> is set.
+ * Otherwise, they run on at most <code>booknumbers.api.hedging.max_threads</code> platform threads, with as many requests waiting for one:
+ * beyond, the request is given up as if it had timed out, and the hedge is denied.
+ * <p>
+ * The following metrics are exposed: <code>booknumbers.api.hedges</code>, <code>booknumbers.api.hedges.won</code> and <code>booknumbers.api.hedges.denied</code>.
+ *
+ * @see BookService#registerBook(info.touret.bookstore.spring.book.entity.Book)
+ * @see AdaptiveTimeLimiter
+ */
+@Component
+public class HedgedNumbersClient {
+
+    /**
+     * Maximum number of hedges which can be saved up while the instances are fast, and spent at once when they slow down
+     */
+    private static final double MAX_SAVED_HEDGES = 10;
+
+    private final RestTemplate restTemplate;
+    private final AdaptiveTimeLimiter timeLimiter;
+    private final List<String> urls;
+    private final long hedgingDelayInMs;
+    private final double hedgesPerRequest;
+    private final AtomicInteger nextInstance = new AtomicInteger();
+    private final ExecutorService executor;
+    private final Counter hedgeCounter;
+    private final Counter wonHedgeCounter;
+    private final Counter deniedHedgeCounter;
+    private double savedHedges;
+
+    public HedgedNumbersClient(RestTemplate restTemplate,
+                               AdaptiveTimeLimiter timeLimiter,
+                               @Value("${booknumbers.api.urls:${booknumbers.api.url}}") List<String> urls,
+                               @Value("${booknumbers.api.hedging.delay_ms:100}") long hedgingDelayInMs,
+                               @Value("${booknumbers.api.hedging.budget_percent:10}") double budgetPercent,
+                               @Value("${booknumbers.api.hedging.max_threads:50}") int maxThreads,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                               MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.timeLimiter = timeLimiter;
+        this.urls = List.copyOf(urls);
+        this.hedgingDelayInMs = hedgingDelayInMs;
+        this.hedgesPerRequest = budgetPercent / 100;
+        this.executor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : createBoundedExecutor(maxThreads);
+        this.hedgeCounter = Counter.builder("booknumbers.api.hedges")
+                .description("Number of backup requests sent to another Numbers API instance")
+                .register(meterRegistry);
+        this.wonHedgeCounter = Counter.builder("booknumbers.api.hedges.won")
+                .description("Number of backup requests which answered first")
+                .register(meterRegistry);
+        this.deniedHedgeCounter = Counter.builder("booknumbers.api.hedges.denied")
+                .description("Number of backup requests not sent because the budget was exhausted")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gets a resource from the Numbers API, hedging the request if the first instance is slow
+     *
+     * @param path         the path of the resource, relative to the instance URL
+     * @param responseType the type of the resource
+     * @param uriVariables the variables of the path
+     * @return the first successful answer
+     * @throws org.springframework.web.client.RestClientException all the instances called failed
+     * @throws ApiCallTimeoutException                            no instance answered within the timeout, or the call has been interrupted (e.g., by the circuit breaker time limiter)
+     */
+    public <T> T get(String path, Class<T> responseType, Object... uriVariables) {
+        var start = System.nanoTime();
+        var timeoutInMs = timeLimiter.getTimeoutInMs();
+        var deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutInMs);
+        var hedgeTime = start + TimeUnit.MILLISECONDS.toNanos(hedgingDelayInMs);
+        var instance = Math.floorMod(nextInstance.getAndIncrement(), urls.size());
+        earnHedge();
+        var completionService = new ExecutorCompletionService<T>(executor);
+        var calls = new ArrayList<Future<T>>(2);
+        try {
+            calls.add(completionService.submit(() -> call(urls.get(instance) + path, responseType, uriVariables)));
+        } catch (RejectedExecutionException e) {
+            throw new ApiCallTimeoutException("Too many Numbers API calls in progress", e);
+        }
+        var hedgeable = urls.size() > 1 && hedgingDelayInMs < timeoutInMs;
+        var pendingCalls = 1;
+        RuntimeException failure = null;
+        try {
+            while (pendingCalls > 0) {
+                var call = completionService.poll((hedgeable ? hedgeTime : deadline) - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (call == null && !hedgeable) {
+                    timeLimiter.record(TimeUnit.MILLISECONDS.toNanos(timeoutInMs));
+                    throw new ApiCallTimeoutException("No Numbers API answer within " + timeoutInMs + " ms");
+                }
+                if (call != null) {
+                    pendingCalls--;
+                    try {
+                        var result = call.get();
+                        if (call != calls.getFirst()) {
+                            wonHedgeCounter.increment();
+                        }
+                        return result;
+                    } catch (ExecutionException e) {
+                        failure = e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+                    }
+                }
+                // The first instance is slow or has failed: the request is hedged once
+                if (hedgeable) {
+                    hedgeable = false;
+                    var hedgeInstance = (instance + 1) % urls.size();
+                    if (spendHedge() && submit(completionService, () -> call(urls.get(hedgeInstance) + path, responseType, uriVariables), calls)) {
+                        pendingCalls++;
+                        hedgeCounter.increment();
+                    } else {
+                        deniedHedgeCounter.increment();
+                    }
+                }
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            // Cut by the time limiter of the circuit breaker, which applies the same timeout
+            timeLimiter.record(TimeUnit.MILLISECONDS.toNanos(timeoutInMs));
+            Thread.currentThread().interrupt();
+            throw new ApiCallTimeoutException("Numbers API call interrupted", e);
+        } finally {
+            calls.forEach(call -> call.cancel(true));
+        }
+    }
+
+    private static <T> boolean submit(ExecutorCompletionService<T> completionService, Callable<T> task, List<Future<T>> calls) {
+        try {
+            calls.add(completionService.submit(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private <T> T call(String url, Class<T> responseType, Object... uriVariables) {
+        var start = System.nanoTime();
+        var result = restTemplate.getForEntity(url, responseType, uriVariables).getBody();
+        timeLimiter.record(System.nanoTime() - start);
+        return result;
+    }
+
+    private synchronized void earnHedge() {
+        savedHedges = Math.min(MAX_SAVED_HEDGES, savedHedges + hedgesPerRequest);
+    }
+
+    private synchronized boolean spendHedge() {
+        if (savedHedges < 1) {
+            return false;
+        }
+        savedHedges--;
+        return true;
+    }
+
+    private static ExecutorService createBoundedExecutor(int maxThreads) {
+        var executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(maxThreads),
+                new CustomizableThreadFactory("numbers-api-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
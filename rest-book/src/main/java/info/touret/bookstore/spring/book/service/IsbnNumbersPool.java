@@ -0,0 +1,161 @@
+package info.touret.bookstore.spring.book.service;
+
+import info.touret.bookstore.spring.book.dto.IsbnNumbers;
+import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of ISBN numbers pre-fetched from the Numbers API.
+ * <p>
+ * When the pool drops below the low-water mark (<code>booknumbers.pool.low_water_mark</code>), background workers refill it by calling the Numbers API in parallel.
+ * The calls are protected by the <code>slowNumbers</code> circuit breaker, like the registrations: they share its state and its adaptive timeout.
+ * If a call fails, the refill is suspended during <code>booknumbers.pool.refill_backoff_ms</code> to avoid hammering an unavailable service.
+ * It is also suspended while the application is draining or in maintenance: the numbers could not be used anyway.
+ * The pool is disabled by default and can be enabled using the <code>booknumbers.pool.enabled</code> property.
+ * <p>
+ * The following metrics are exposed: <code>booknumbers.pool.size</code>, <code>booknumbers.pool.refills</code> and <code>booknumbers.pool.misses</code>.
+ *
+ * @see BookService#registerBook(info.touret.bookstore.spring.book.entity.Book)
+ * @see AdaptiveTimeLimiter
+ */
+@Component
+public class IsbnNumbersPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IsbnNumbersPool.class);
+
+    private final RestTemplate restTemplate;
+    private final CircuitBreakerFactory circuitBreakerFactory;
+    private final MaintenanceDrain maintenanceDrain;
+    private final String isbnServiceURL;
+    private final boolean enabled;
+    private final int lowWaterMark;
+    private final long refillBackoffInMs;
+    private final BlockingQueue<IsbnNumbers> pool;
+    private final ExecutorService refillExecutor;
+    private final AtomicInteger pendingRefills = new AtomicInteger();
+    private final Counter refillCounter;
+    private final Counter missCounter;
+    private volatile long refillSuspendedUntil;
+
+    public IsbnNumbersPool(RestTemplate restTemplate,
+                           @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") CircuitBreakerFactory circuitBreakerFactory,
+                           @Value("${booknumbers.api.url}") String isbnServiceURL,
+                           @Value("${booknumbers.pool.enabled:false}") boolean enabled,
+                           @Value("${booknumbers.pool.capacity:100}") int capacity,
+                           @Value("${booknumbers.pool.low_water_mark:20}") int lowWaterMark,
+                           @Value("${booknumbers.pool.refill_parallelism:4}") int refillParallelism,
+                           @Value("${booknumbers.pool.refill_backoff_ms:5000}") long refillBackoffInMs,
+                           @Lazy MaintenanceDrain maintenanceDrain,
+                           MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.circuitBreakerFactory = circuitBreakerFactory;
+        this.maintenanceDrain = maintenanceDrain;
+        this.isbnServiceURL = isbnServiceURL;
+        this.enabled = enabled;
+        this.lowWaterMark = lowWaterMark;
+        this.refillBackoffInMs = refillBackoffInMs;
+        this.pool = new ArrayBlockingQueue<>(capacity);
+        this.refillExecutor = Executors.newFixedThreadPool(refillParallelism, new CustomizableThreadFactory("isbn-pool-"));
+        Gauge.builder("booknumbers.pool.size", pool, BlockingQueue::size)
+                .description("Number of pre-fetched ISBN numbers available")
+                .register(meterRegistry);
+        this.refillCounter = Counter.builder("booknumbers.pool.refills")
+                .description("Number of ISBN numbers fetched in the background")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("booknumbers.pool.misses")
+                .description("Number of registrations which found the pool empty")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fills the pool once the application is started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void fill() {
+        if (enabled) {
+            refill();
+        }
+    }
+
+    /**
+     * Takes ISBN numbers from the pool and triggers a refill if the low-water mark is reached
+     *
+     * @return ISBN numbers or an empty value if the pool is disabled or empty
+     */
+    public Optional<IsbnNumbers> take() {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        var isbnNumbers = pool.poll();
+        if (isbnNumbers == null) {
+            missCounter.increment();
+        }
+        if (pool.size() < lowWaterMark) {
+            refill();
+        }
+        return Optional.ofNullable(isbnNumbers);
+    }
+
+    /**
+     * Submits as many fetches as needed to fill the pool, minus the ones which are still running
+     */
+    private void refill() {
+        if (System.currentTimeMillis() < refillSuspendedUntil || maintenanceDrain.getPhase() != MaintenanceDrain.Phase.ACCEPTING) {
+            return;
+        }
+        int pending;
+        while ((pending = pendingRefills.get()) < pool.remainingCapacity()) {
+            if (pendingRefills.compareAndSet(pending, pending + 1)) {
+                refillExecutor.execute(this::fetch);
+            }
+        }
+    }
+
+    private void fetch() {
+        try {
+            if (System.currentTimeMillis() < refillSuspendedUntil) {
+                return;
+            }
+            var isbnNumbers = circuitBreakerFactory.create("slowNumbers").run(
+                    () -> restTemplate.getForEntity(isbnServiceURL, IsbnNumbers.class).getBody(),
+                    throwable -> {
+                        throw new ApiCallTimeoutException("Numbers not accessible", throwable);
+                    }
+            );
+            if (isbnNumbers != null && pool.offer(isbnNumbers)) {
+                refillCounter.increment();
+            }
+        } catch (ApiCallTimeoutException e) {
+            LOGGER.warn("Cannot refill the ISBN numbers pool, suspending it for {} ms: {}", refillBackoffInMs, e.getCause());
+            refillSuspendedUntil = System.currentTimeMillis() + refillBackoffInMs;
+        } finally {
+            pendingRefills.decrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,71 @@
+package info.touret.bookstore.spring.limit.filter;
+
+import info.touret.bookstore.spring.limit.exception.ConcurrencyLimitExceededException;
+import info.touret.bookstore.spring.limit.service.AdaptiveConcurrencyLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static info.touret.bookstore.spring.book.controller.BookExportController.API_EXPORT_URI;
+
+/**
+ * Applies the adaptive concurrency limit to the book API. The requests exceeding the limit are rejected right away, before reaching the controller.
+ * The catalog export is not limited: it is streamed asynchronously and its duration does not reflect the load.
+ *
+ * @see AdaptiveConcurrencyLimiter
+ * @see info.touret.bookstore.spring.GlobalExceptionHandler : defines which http return code to provide to the client
+ */
+@Component
+public class ConcurrencyLimitFilter implements Filter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+    private static final String API_BOOKS_URI = "/books";
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final String contextPath;
+    private final HandlerExceptionResolver exceptionHandler;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                  @Value("${server.servlet.context-path:}") String contextPath,
+                                  @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionHandler) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.contextPath = contextPath;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * Processes the book requests only if the concurrency limit is not reached
+     *
+     * @throws ConcurrencyLimitExceededException the concurrency limit is reached
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        var requestURI = ((HttpServletRequest) request).getRequestURI();
+        if (!requestURI.startsWith(contextPath + API_BOOKS_URI) || requestURI.startsWith(contextPath + API_EXPORT_URI)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            LOGGER.debug("Request rejected, the concurrency limit is reached [{}]", requestURI);
+            exceptionHandler.resolveException((HttpServletRequest) request, (HttpServletResponse) response, null, new ConcurrencyLimitExceededException("Concurrency limit reached"));
+            return;
+        }
+        var start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            concurrencyLimiter.release(System.nanoTime() - start, !request.isAsyncStarted());
+        }
+    }
+}
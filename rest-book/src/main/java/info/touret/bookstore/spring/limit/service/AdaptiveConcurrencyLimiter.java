@@ -0,0 +1,148 @@
+package info.touret.bookstore.spring.limit.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests processed at the same time. The limit is adjusted from the measured latency, using a gradient algorithm:
+ * <ul>
+ *     <li>the latencies are averaged over windows of <code>book.concurrency.limiter.window_ms</code> (the short term RTT), and the window averages are smoothed into a long term RTT</li>
+ *     <li>while the short term RTT stays close to the long term one, the limit grows by its square root at every window</li>
+ *     <li>once requests start queuing (the short term RTT exceeds the long term one), the limit shrinks proportionally to the ratio of the two RTTs, down to half of it</li>
+ * </ul>
+ * The limit stays within <code>book.concurrency.limiter.min_limit</code> and <code>book.concurrency.limiter.max_limit</code>.
+ * When less than half of it is used, it is not raised but decays towards twice the observed concurrency: a limit raised by a past peak does not let a later one through unchecked.
+ * The limiter is disabled by default and can be enabled using the <code>book.concurrency.limiter.enabled</code> property: the requests are then only counted.
+ * <p>
+ * The following metrics are exposed: <code>books.concurrency.limit</code>, <code>books.concurrency.in_flight</code> and <code>books.concurrency.rejections</code>.
+ *
+ * @see info.touret.bookstore.spring.limit.filter.ConcurrencyLimitFilter
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    /**
+     * Minimum number of requests in a window for updating the limit
+     */
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    /**
+     * Weight of the last window in the long term RTT: it roughly averages the last ten windows
+     */
+    private static final double LONG_RTT_WEIGHT = 0.1;
+    /**
+     * Latency increase tolerated before reducing the limit
+     */
+    private static final double RTT_TOLERANCE = 1.5;
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowInNs;
+    private final double smoothing;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectionCounter;
+    private volatile double limit;
+    // The following fields are guarded by this
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(@Value("${book.concurrency.limiter.enabled:false}") boolean enabled,
+                                      @Value("${book.concurrency.limiter.initial_limit:20}") int initialLimit,
+                                      @Value("${book.concurrency.limiter.min_limit:5}") int minLimit,
+                                      @Value("${book.concurrency.limiter.max_limit:200}") int maxLimit,
+                                      @Value("${book.concurrency.limiter.window_ms:1000}") long windowInMs,
+                                      @Value("${book.concurrency.limiter.smoothing:0.2}") double smoothing,
+                                      MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowInNs = TimeUnit.MILLISECONDS.toNanos(windowInMs);
+        this.smoothing = smoothing;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        Gauge.builder("books.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Maximum number of book requests processed at the same time")
+                .register(meterRegistry);
+        Gauge.builder("books.concurrency.in_flight", inFlight, AtomicInteger::get)
+                .description("Number of book requests being processed")
+                .register(meterRegistry);
+        this.rejectionCounter = Counter.builder("books.concurrency.rejections")
+                .description("Number of book requests rejected because the concurrency limit was reached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserves a slot for a request
+     *
+     * @return false if the limit is reached: the request must be rejected
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (enabled && current >= (int) limit) {
+                rejectionCounter.increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Releases the slot of a request
+     *
+     * @param rttInNs the processing time of the request
+     * @param sampled false if the processing time is not representative (e.g., the request goes on asynchronously) and must not be taken into account
+     */
+    public void release(long rttInNs, boolean sampled) {
+        var current = inFlight.getAndDecrement();
+        if (enabled && sampled) {
+            onSample(rttInNs, current);
+        }
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    private synchronized void onSample(long rttInNs, int currentInFlight) {
+        windowRttSum += rttInNs;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, currentInFlight);
+        var now = System.nanoTime();
+        if (now - windowStart < windowInNs || windowSamples < MIN_WINDOW_SAMPLES) {
+            return;
+        }
+        var shortRtt = (double) windowRttSum / windowSamples;
+        longRtt = longRtt == 0 ? shortRtt : longRtt * (1 - LONG_RTT_WEIGHT) + shortRtt * LONG_RTT_WEIGHT;
+        // Once an overload is over, the long term RTT would remember the high latencies for a while
+        if (longRtt > shortRtt * 2) {
+            longRtt *= 0.95;
+        }
+        double newLimit;
+        // The limit is only raised if it is actually needed
+        if (windowMaxInFlight >= limit / 2) {
+            var gradient = Math.clamp(RTT_TOLERANCE * longRtt / shortRtt, 0.5, 1.0);
+            newLimit = limit * gradient + Math.sqrt(limit);
+        } else {
+            newLimit = 2.0 * windowMaxInFlight;
+        }
+        limit = Math.clamp(limit * (1 - smoothing) + newLimit * smoothing, minLimit, maxLimit);
+        LOGGER.debug("Concurrency limit set to {} (short RTT: {} ns, long RTT: {} ns, max in flight: {})", limit, shortRtt, longRtt, windowMaxInFlight);
+        windowStart = now;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+    }
+}
@@ -2,10 +2,11 @@ package info.touret.bookstore.spring.maintenance.controller;
 
 import info.touret.bookstore.spring.book.generated.controller.MaintenanceApi;
 import info.touret.bookstore.spring.book.generated.dto.MaintenanceDto;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
 import org.springframework.boot.availability.ApplicationAvailability;
-import org.springframework.boot.availability.AvailabilityChangeEvent;
 import org.springframework.boot.availability.ReadinessState;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -16,8 +17,10 @@ import java.util.Date;
 /**
  * Manages maintenance mode flag by using Spring boot standard functionalities
  * <p>
- * These classes interact with Actuator and its Readiness Probe.
+ * These classes interact with Actuator and its Readiness Probe. The application is drained before being put in maintenance: the progress is given by the maintenance status.
+ * In read-only maintenance, the reads of the catalog are served from memory while the writes are refused.
  *
+ * @see MaintenanceDrain
  * @see ApplicationEventPublisher
  * @see org.springframework.boot.availability.ApplicationAvailability
  * @see ReadinessState
@@ -27,13 +30,17 @@ public class MaintenanceController implements MaintenanceApi {
 
 
     public static final String API_MAINTENANCE_URI = "/maintenance";
-    private final ApplicationEventPublisher eventPublisher;
-
+    /**
+     * Request body putting the application in read-only maintenance
+     */
+    public static final String READ_ONLY_LEVEL = "read-only";
     private final ApplicationAvailability availability;
 
-    public MaintenanceController(ApplicationEventPublisher eventPublisher, ApplicationAvailability applicationAvailability) {
-        this.eventPublisher = eventPublisher;
+    private final MaintenanceDrain maintenanceDrain;
+
+    public MaintenanceController(ApplicationAvailability applicationAvailability, MaintenanceDrain maintenanceDrain) {
         this.availability = applicationAvailability;
+        this.maintenanceDrain = maintenanceDrain;
     }
 
     @Override
@@ -42,12 +49,36 @@ public class MaintenanceController implements MaintenanceApi {
         var maintenanceDto = new MaintenanceDto();
         maintenanceDto.setInMaintenance(lastChangeEvent.getState().equals(ReadinessState.REFUSING_TRAFFIC));
         maintenanceDto.setFrom(OffsetDateTime.ofInstant(new Date(lastChangeEvent.getTimestamp()).toInstant(), ZoneId.systemDefault()));
+        maintenanceDto.setStatus(MaintenanceDto.StatusEnum.fromValue(maintenanceDrain.getPhase().name()));
+        maintenanceDto.setInFlightRequests(maintenanceDrain.getInFlightRequests());
+        maintenanceDto.setInFlightWrites(maintenanceDrain.getInFlightWrites());
+        maintenanceDto.setPendingRegistrations(maintenanceDrain.getPendingRegistrations());
+        if (maintenanceDrain.getDeadline() != null) {
+            maintenanceDto.setDrainDeadline(OffsetDateTime.ofInstant(maintenanceDrain.getDeadline(), ZoneId.systemDefault()));
+        }
+        maintenanceDto.setAbandoned(maintenanceDrain.getAbandoned());
         return ResponseEntity.ok(maintenanceDto);
     }
 
+    /**
+     * Puts the application in maintenance or in read-only maintenance once drained, or puts it back in service
+     *
+     * @param inMaintenance <code>true</code> for starting the maintenance, <code>read-only</code> for starting the read-only maintenance
+     * @return a 202 status while the application is being drained
+     */
     @Override
     public ResponseEntity<Void> initInMaintenance(String inMaintenance) {
-        AvailabilityChangeEvent.publish(eventPublisher, this, Boolean.valueOf(inMaintenance) ? ReadinessState.REFUSING_TRAFFIC : ReadinessState.ACCEPTING_TRAFFIC);
-        return ResponseEntity.noContent().build();
+        if (READ_ONLY_LEVEL.equalsIgnoreCase(inMaintenance.strip())) {
+            maintenanceDrain.readOnly();
+        } else if (Boolean.parseBoolean(inMaintenance.strip())) {
+            maintenanceDrain.drain();
+        } else {
+            maintenanceDrain.resume();
+            return ResponseEntity.noContent().build();
+        }
+        var phase = maintenanceDrain.getPhase();
+        return phase == MaintenanceDrain.Phase.DRAINING || phase == MaintenanceDrain.Phase.DRAINING_WRITES
+                ? ResponseEntity.status(HttpStatus.ACCEPTED).build()
+                : ResponseEntity.noContent().build();
     }
 }
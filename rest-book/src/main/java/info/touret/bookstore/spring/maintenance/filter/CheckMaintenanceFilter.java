@@ -1,16 +1,17 @@
 package info.touret.bookstore.spring.maintenance.filter;
 
 import info.touret.bookstore.spring.maintenance.exception.MaintenanceException;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.availability.ApplicationAvailability;
-import org.springframework.boot.availability.ReadinessState;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -19,20 +20,29 @@ import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import static info.touret.bookstore.spring.maintenance.controller.MaintenanceController.API_MAINTENANCE_URI;
 
 /**
- * Controls access to the application by returning an error message regarding the maintenance status
+ * Controls access to the application by returning an error message regarding the maintenance status.
+ * The requests admitted are counted until they are processed (for the asynchronous ones, until they complete): the maintenance waits for them.
+ * In read-only maintenance, only the GET requests served from the catalog snapshot are admitted.
  *
- * @see org.springframework.boot.availability.ApplicationAvailability
+ * @see MaintenanceDrain
  * @see info.touret.bookstore.spring.GlobalExceptionHandler : defines which http return code to provide to the client
  */
 @Component
 public class CheckMaintenanceFilter implements Filter {
     private static final Logger LOGGER = LoggerFactory.getLogger(CheckMaintenanceFilter.class);
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    /**
+     * Book lists, books, count, random book and statistics
+     */
+    private static final Pattern SNAPSHOT_READ_URIS = Pattern.compile("/books(/(\\d+|count|random|stats))?");
     @Autowired
-    private ApplicationAvailability availability;
+    private MaintenanceDrain maintenanceDrain;
 
     @Value("${server.servlet.context-path:}")
     private String contextPath;
@@ -42,7 +52,7 @@ public class CheckMaintenanceFilter implements Filter {
     private HandlerExceptionResolver exceptionHandler;
 
     /**
-     * Checks if the application is under maintenance. If it is and if the requested URI is not '/api/maintenance', it throws a <code>MaintenanceException</code>
+     * Checks if the application is under maintenance or draining. If it is and if the requested URI is not '/api/maintenance', it throws a <code>MaintenanceException</code>
      *
      * @param request
      * @param response
@@ -53,12 +63,59 @@ public class CheckMaintenanceFilter implements Filter {
      */
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
-        if (availability.getReadinessState().equals(ReadinessState.REFUSING_TRAFFIC) &&
-                !((HttpServletRequest) request).getRequestURI().equals(contextPath + API_MAINTENANCE_URI)) {
+        var httpRequest = (HttpServletRequest) request;
+        var requestURI = httpRequest.getRequestURI();
+        var write = !SAFE_METHODS.contains(httpRequest.getMethod());
+        if (requestURI.equals(contextPath + API_MAINTENANCE_URI)) {
+            chain.doFilter(request, response);
+        } else if (!maintenanceDrain.tryEnter(write, isSnapshotRead(requestURI))) {
             LOGGER.warn("Message handled during maintenance [{}]", ((HttpServletRequest) request).getRequestURI());
             exceptionHandler.resolveException((HttpServletRequest) request, (HttpServletResponse) response, null, new MaintenanceException("Service currently in maintenance"));
         } else {
-            chain.doFilter(request, response);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                if (request.isAsyncStarted()) {
+                    request.getAsyncContext().addListener(new ExitOnComplete(write));
+                } else {
+                    maintenanceDrain.exit(write);
+                }
+            }
+        }
+    }
+
+    private boolean isSnapshotRead(String requestURI) {
+        return requestURI.startsWith(contextPath) && SNAPSHOT_READ_URIS.matcher(requestURI.substring(contextPath.length())).matches();
+    }
+
+    /**
+     * Releases an asynchronous request once it is complete
+     */
+    private class ExitOnComplete implements AsyncListener {
+        private final boolean write;
+
+        ExitOnComplete(boolean write) {
+            this.write = write;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            maintenanceDrain.exit(write);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // onComplete is called afterwards
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // onComplete is called afterwards
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
         }
     }
 
@@ -0,0 +1,284 @@
+package info.touret.bookstore.spring.maintenance.service;
+
+import info.touret.bookstore.spring.book.registration.BookRegistrationQueue;
+import info.touret.bookstore.spring.book.service.CatalogSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the application before putting it in maintenance.
+ * <p>
+ * The requests in flight are counted by {@link info.touret.bookstore.spring.maintenance.filter.CheckMaintenanceFilter}. When the maintenance is asked for,
+ * no new request is admitted anymore, but the running ones, the pending asynchronous registrations and their Numbers API calls are given up to
+ * <code>maintenance.drain.timeout_ms</code> to finish. The readiness state is then set to {@link ReadinessState#REFUSING_TRAFFIC}: the service is reported as in maintenance.
+ * The work still running at the deadline is abandoned and counted.
+ * <p>
+ * The application can also be put in read-only maintenance, for the database maintenance windows: only the writes are drained, then the catalog is copied in memory
+ * by {@link CatalogSnapshot}. The reads served from the snapshot (book lists, books, count, random book and statistics) keep being admitted, the other requests are refused.
+ * The readiness state is not changed: the application still accepts traffic.
+ *
+ * @see info.touret.bookstore.spring.maintenance.controller.MaintenanceController
+ */
+@Component
+public class MaintenanceDrain {
+
+    public enum Phase {
+        /**
+         * The requests are processed
+         */
+        ACCEPTING,
+        /**
+         * The new requests are refused, the running ones are finishing
+         */
+        DRAINING,
+        /**
+         * The application is in maintenance
+         */
+        IN_MAINTENANCE,
+        /**
+         * The new writes are refused, the running ones are finishing before taking the catalog snapshot
+         */
+        DRAINING_WRITES,
+        /**
+         * Only the reads served from the catalog snapshot are admitted
+         */
+        READ_ONLY
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MaintenanceDrain.class);
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApplicationAvailability availability;
+    private final BookRegistrationQueue bookRegistrationQueue;
+    private final CatalogSnapshot catalogSnapshot;
+    private final Duration timeout;
+    private final long pollIntervalInMs;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final AtomicInteger inFlightWrites = new AtomicInteger();
+    private volatile Phase phase = Phase.ACCEPTING;
+    private volatile Instant deadline;
+    private volatile int abandoned;
+    // Guarded by this
+    private ScheduledFuture<?> drainCheck;
+
+    public MaintenanceDrain(ApplicationEventPublisher eventPublisher,
+                            ApplicationAvailability availability,
+                            BookRegistrationQueue bookRegistrationQueue,
+                            CatalogSnapshot catalogSnapshot,
+                            @Value("${maintenance.drain.timeout_ms:30000}") long timeoutInMs,
+                            @Value("${maintenance.drain.poll_interval_ms:100}") long pollIntervalInMs) {
+        this.eventPublisher = eventPublisher;
+        this.availability = availability;
+        this.bookRegistrationQueue = bookRegistrationQueue;
+        this.catalogSnapshot = catalogSnapshot;
+        this.timeout = Duration.ofMillis(timeoutInMs);
+        this.pollIntervalInMs = pollIntervalInMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("maintenance-drain-"));
+    }
+
+    /**
+     * Admits a new request. If admitted, {@link #exit(boolean)} must be called once it is processed.
+     *
+     * @param write        true if the request may modify the catalog
+     * @param snapshotRead true if the request can be served from the catalog snapshot
+     * @return false if the application is draining or in maintenance, or if the request cannot be served in read-only maintenance
+     */
+    public boolean tryEnter(boolean write, boolean snapshotRead) {
+        // Counted before checking the phase: a drain starting meanwhile waits for this request
+        inFlightRequests.incrementAndGet();
+        if (write) {
+            inFlightWrites.incrementAndGet();
+        }
+        if (isAdmitted(phase, write, snapshotRead) && availability.getReadinessState() == ReadinessState.ACCEPTING_TRAFFIC) {
+            return true;
+        }
+        exit(write);
+        return false;
+    }
+
+    private static boolean isAdmitted(Phase phase, boolean write, boolean snapshotRead) {
+        return switch (phase) {
+            case ACCEPTING -> true;
+            case DRAINING_WRITES -> !write;
+            case READ_ONLY -> !write && snapshotRead;
+            case DRAINING, IN_MAINTENANCE -> false;
+        };
+    }
+
+    /**
+     * Releases a request admitted by {@link #tryEnter(boolean, boolean)}
+     *
+     * @param write the value given when admitting the request
+     */
+    public void exit(boolean write) {
+        if (write) {
+            inFlightWrites.decrementAndGet();
+        }
+        inFlightRequests.decrementAndGet();
+    }
+
+    /**
+     * Stops admitting new requests and waits for the running ones before putting the application in maintenance.
+     * The application can be put in maintenance from the read-only maintenance.
+     *
+     * @return false if the application is already draining or in maintenance
+     */
+    public synchronized boolean drain() {
+        var current = getPhase();
+        if (current != Phase.ACCEPTING && current != Phase.READ_ONLY) {
+            return false;
+        }
+        if (drainCheck != null) {
+            drainCheck.cancel(false);
+        }
+        phase = Phase.DRAINING;
+        deadline = Instant.now().plus(timeout);
+        abandoned = 0;
+        LOGGER.info("Draining {} requests and {} registrations before the maintenance", inFlightRequests.get(), bookRegistrationQueue.pendingCount());
+        drainCheck = scheduler.scheduleWithFixedDelay(this::checkDrained, 0, pollIntervalInMs, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private synchronized void checkDrained() {
+        if (phase != Phase.DRAINING) {
+            return;
+        }
+        var remaining = inFlightRequests.get() + bookRegistrationQueue.pendingCount();
+        if (remaining > 0 && Instant.now().isBefore(deadline)) {
+            return;
+        }
+        if (remaining > 0) {
+            LOGGER.warn("Drain deadline reached, {} requests and registrations abandoned", remaining);
+            abandoned = remaining;
+        }
+        drainCheck.cancel(false);
+        phase = Phase.IN_MAINTENANCE;
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        LOGGER.info("Application in maintenance");
+    }
+
+    /**
+     * Stops admitting new writes and waits for the running ones and for the pending registrations, then takes the catalog snapshot
+     * and puts the application in read-only maintenance
+     *
+     * @return false if the application is not accepting all the requests
+     */
+    public synchronized boolean readOnly() {
+        if (getPhase() != Phase.ACCEPTING) {
+            return false;
+        }
+        phase = Phase.DRAINING_WRITES;
+        deadline = Instant.now().plus(timeout);
+        abandoned = 0;
+        LOGGER.info("Draining {} writes and {} registrations before the read-only maintenance", inFlightWrites.get(), bookRegistrationQueue.pendingCount());
+        drainCheck = scheduler.scheduleWithFixedDelay(this::checkWritesDrained, 0, pollIntervalInMs, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private synchronized void checkWritesDrained() {
+        if (phase != Phase.DRAINING_WRITES) {
+            return;
+        }
+        var remaining = inFlightWrites.get() + bookRegistrationQueue.pendingCount();
+        if (remaining > 0 && Instant.now().isBefore(deadline)) {
+            return;
+        }
+        if (remaining > 0) {
+            LOGGER.warn("Drain deadline reached, {} writes and registrations abandoned", remaining);
+            abandoned = remaining;
+        }
+        drainCheck.cancel(false);
+        try {
+            catalogSnapshot.take();
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to take the catalog snapshot, the read-only maintenance is cancelled", e);
+            phase = Phase.ACCEPTING;
+            deadline = null;
+            return;
+        }
+        phase = Phase.READ_ONLY;
+        LOGGER.info("Application in read-only maintenance");
+    }
+
+    /**
+     * Leaves the maintenance, or cancels the drain in progress. The catalog snapshot is dropped.
+     */
+    public synchronized void resume() {
+        if (drainCheck != null) {
+            drainCheck.cancel(false);
+        }
+        phase = Phase.ACCEPTING;
+        deadline = null;
+        abandoned = 0;
+        catalogSnapshot.release();
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    /**
+     * @return the current phase. The application is also in maintenance if the readiness state has been changed by another component.
+     */
+    public Phase getPhase() {
+        var current = phase;
+        if (current == Phase.ACCEPTING && availability.getReadinessState() == ReadinessState.REFUSING_TRAFFIC) {
+            return Phase.IN_MAINTENANCE;
+        }
+        return current;
+    }
+
+    /**
+     * @return the number of requests being processed
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    /**
+     * @return the number of requests which may modify the catalog being processed
+     */
+    public int getInFlightWrites() {
+        return inFlightWrites.get();
+    }
+
+    /**
+     * @return the number of asynchronous registrations waiting or running
+     */
+    public int getPendingRegistrations() {
+        return bookRegistrationQueue.pendingCount();
+    }
+
+    /**
+     * @return the end of the drain in progress or of the last one, null if the application is accepting requests
+     */
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return the number of requests and registrations still running when the last drain deadline was reached
+     */
+    public int getAbandoned() {
+        return abandoned;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,9 @@
+-- Indexes of the filtered book reads and of the full-text search, for a database whose schema has been created before them (see Book).
+-- They are created without locking the table against writes; run with: psql -d books_database -f book-indexes.sql
+create index concurrently if not exists book_author_idx on book (author, id);
+create index concurrently if not exists book_year_of_publication_idx on book (year_of_publication);
+create index concurrently if not exists book_rank_idx on book (rank);
+create index concurrently if not exists book_price_idx on book (price);
+-- Full-text search (book.search.engine=postgres): the expression must be exactly the one of PostgresBookSearchIndex
+create index concurrently if not exists book_search_idx on book using gin ((setweight(to_tsvector('simple', coalesce(title, '')), 'A') || setweight(to_tsvector('simple', coalesce(author, '')), 'B') || setweight(to_tsvector('simple', coalesce(description, '')), 'C')));
+analyze book;
@@ -0,0 +1,4 @@
+-- Moves the book IDs sequence above the existing books, for a database whose sequence has been created before its initial value (see Book).
+-- The pooled optimizer uses the value of the sequence as the upper bound of the block it reserves, hence the allocation size (50) added to the maximum ID.
+-- Run it while the application is stopped: psql -d books_database -f book-sequence.sql
+select setval('book_seq', greatest((select coalesce(max(id), 0) + 50 from book), (select last_value from book_seq)));
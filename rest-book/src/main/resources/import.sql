@@ -100,3 +100,4 @@ INSERT INTO Book(id, isbn_13, title, rank, small_image_url, medium_image_url, pr
 INSERT INTO Book(id, isbn_13, title, rank, small_image_url, medium_image_url, price, nb_of_pages, year_of_publication, author, description) VALUES ( 1098, '1931182336', 'Introducing Java EE 7: a Look at What''s New (Paperback) - Common', 5, 'http://ecx.images-amazon.com/images/I/4196pHw-G2L._SL75_.jpg', 'http://ecx.images-amazon.com/images/I/4196pHw-G2L._SL160_.jpg', 9.99, 214, 2014, 'Arun Gupta', 'A Perorvoslatok Teljes Rendszere: Tekintettel Ugy AZ Irasbeli Mint a Szobeli Eljarasra Es Osszefuggeseben a Birosagi Szervezettel (1879)');
 INSERT INTO Book(id, isbn_13, title, rank, small_image_url, medium_image_url, price, nb_of_pages, year_of_publication, author, description) VALUES ( 1099, '1931182337', 'Introducing Java EE 7: a Look at What''s New Author: Josh Juneau Jan-2014', 5, 'http://ecx.images-amazon.com/images/I/4196pHw-G2L._SL75_.jpg', 'http://ecx.images-amazon.com/images/I/4196pHw-G2L._SL160_.jpg', 9.99, 9.99, 2014, 'Linda Demichiel', 'Lorem ipsum dolor sit amet, consectetuer adipiscing elit. Aenean commodo ligula eget dolor. Aenean massa. Cum sociis natoque penatibus et magnis dis parturient montes, nascetur ridiculus mus. Donec quam felis, ultricies nec, pellentesque eu, pretium quis, sem. Nulla consequat massa quis enim. Donec pede justo, fringilla vel, aliquet nec, vulputate eget, arcu. In enim justo, rhoncus ut, imperdiet a, venenatis vitae, justo. Nullam dictum felis eu pede mollis pretium. Integer tincidunt. Cras dapibus. Vivamus elementum semper nisi. Aenean vulputate eleifend tellus. Aenean leo ligula, porttitor eu, consequat vitae, eleifend ac, enim. Aliquam lorem ante, dapibus in, viverra quis, feugiat a, tellus. Phasellus viverra nulla ut metus varius laoreet. Quisque rutrum. Aenean imperdiet. Etiam ultricies nisi vel augue. Curabitur ullamcorper ultricies nisi. Nam eget dui. Etiam rhoncus. Maecenas tempus, tellus eget condimentum rhoncus, sem quam semper libero, sit amet adipiscing sem neque sed ipsum. Nam quam nunc, blandit vel, luctus pulvinar, hendrerit id, lorem. Maecenas nec odio et ante tincidunt tempus. Donec vitae sapien ut libero venenatis faucibus. Nullam quis ante. Etiam sit amet orci eget eros faucibus tincidunt. Duis leo. Sed fringilla mauris sit amet nibh. Donec sodales sagittis magna. Sed consequat, leo eget bibendum sodales, augue velit cursus nunc');
 INSERT INTO Book(id, isbn_13, title, rank, small_image_url, medium_image_url, price, nb_of_pages, year_of_publication, author, description) VALUES ( 1100, '1931182338', 'Introducing Java EE 7: A Look at What''s New 1st (first) Edition by Juneau, Josh published by Apress (2013)', 5, 'http://ecx.images-amazon.com/images/I/51ah8wiHJJL._SL75_.jpg', 'http://ecx.images-amazon.com/images/I/51ah8wiHJJL._SL160_.jpg', 9.99, 123, 2008, 'Adam Bien', 'Lorem ipsum dolor sit amet, consectetuer adipiscing elit. Aenean commodo ligula eget dolor. Aenean massa. Cum sociis natoque penatibus et magnis dis parturient montes, nascetur ridiculus mus. Donec quam felis, ultricies nec, pellentesque eu, pretium quis, sem. Nulla consequat massa quis enim. Donec pede justo, fringilla vel, aliquet nec, vulputate eget, arcu. In enim justo, rhoncus ut, imperdiet a, venenatis vitae, justo. Nullam dictum felis eu pede mollis pretium. Integer tincidunt. Cras dapibus. Vivamus elementum semper nisi. Aenean vulputate eleifend tellus. Aenean leo ligula, porttitor eu, consequat vitae, eleifend ac, enim. Aliquam lorem ante, dapibus in, viverra quis, feugiat a, tellus. Phasellus viverra nulla ut metus varius laoreet. Quisque rutrum. Aenean imperdiet. Etiam ultricies nisi vel augue. Curabitur ullamcorper ultricies nisi. Nam eget dui. Etiam rhoncus. Maecenas tempus, tellus eget condimentum rhoncus, sem quam semper libero, sit amet adipiscing sem neque sed ipsum. Nam quam nunc, blandit vel, luctus pulvinar, hendrerit id, lorem. Maecenas nec odio et ante tincidunt tempus. Donec vitae sapien ut libero venenatis faucibus. Nullam quis ante. Etiam sit amet orci eget eros faucibus tincidunt. Duis leo. Sed fringilla mauris sit amet nibh. Donec sodales sagittis magna. Sed consequat, leo eget bibendum sodales, augue velit cursus nunc');
+UPDATE Book SET excerpt = LEFT(description, 100) WHERE description IS NOT NULL;
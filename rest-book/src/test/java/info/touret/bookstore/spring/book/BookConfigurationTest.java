@@ -0,0 +1,78 @@
+package info.touret.bookstore.spring.book;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class BookConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(BookConfiguration.class)
+            .withBean(RestTemplateBuilder.class, RestTemplateBuilder::new)
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withBean(ObservationRegistry.class, ObservationRegistry::create)
+            .withBean(CacheManager.class, ConcurrentMapCacheManager::new)
+            .withPropertyValues("booknumbers.api.timeout_sec=2");
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void should_run_the_circuit_breakers_on_virtual_threads_when_enabled() {
+        contextRunner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+            var executorService = context.getBean(ExecutorService.class);
+            assertTrue(executorService.submit(() -> Thread.currentThread().isVirtual()).get());
+
+            var factory = mock(Resilience4JCircuitBreakerFactory.class);
+            context.getBean("createVirtualThreadsCustomizer", Customizer.class).customize(factory);
+            verify(factory).configureExecutorService(executorService);
+        });
+    }
+
+    @Test
+    void should_keep_the_default_executor_when_virtual_threads_are_disabled() {
+        contextRunner.withPropertyValues("spring.threads.virtual.enabled=false").run(context -> {
+            assertTrue(context.getBeansOfType(ExecutorService.class).isEmpty());
+            assertFalse(context.containsBean("createVirtualThreadsCustomizer"));
+        });
+    }
+
+    @Test
+    void should_create_a_simple_request_factory_by_default() {
+        contextRunner.run(context -> assertInstanceOf(SimpleClientHttpRequestFactory.class, context.getBean(ClientHttpRequestFactory.class)));
+        contextRunner.withPropertyValues("booknumbers.api.client.mode=simple")
+                .run(context -> assertInstanceOf(SimpleClientHttpRequestFactory.class, context.getBean(ClientHttpRequestFactory.class)));
+    }
+
+    @Test
+    void should_create_a_pooled_request_factory_exposing_the_pool_metrics() {
+        contextRunner.withPropertyValues("booknumbers.api.client.mode=pooled", "booknumbers.api.client.max_connections=20").run(context -> {
+            assertInstanceOf(HttpComponentsClientHttpRequestFactory.class, context.getBean(ClientHttpRequestFactory.class));
+            assertNotNull(context.getBean(MeterRegistry.class).find("httpcomponents.httpclient.pool.total.max").tag("httpclient", "numbers-api").gauge());
+        });
+    }
+
+    @Test
+    void should_create_an_http2_request_factory() {
+        contextRunner.withPropertyValues("booknumbers.api.client.mode=http2")
+                .run(context -> assertInstanceOf(JdkClientHttpRequestFactory.class, context.getBean(ClientHttpRequestFactory.class)));
+    }
+}
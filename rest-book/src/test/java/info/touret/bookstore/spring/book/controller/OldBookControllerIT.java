@@ -4,6 +4,10 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import info.touret.bookstore.spring.book.dto.IsbnNumbers;
 import info.touret.bookstore.spring.book.dto.OldBookDto;
+import info.touret.bookstore.spring.book.search.BookSearchIndex;
+import info.touret.bookstore.spring.book.service.BookCacheInvalidator;
+import info.touret.bookstore.spring.book.service.BookIdIndex;
+import info.touret.bookstore.spring.book.service.BookStatistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +17,7 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
@@ -22,8 +27,11 @@ import org.springframework.web.client.RestTemplate;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -49,6 +57,16 @@ class OldBookControllerIT {
     private String booksUrl;
     @Autowired
     private RestTemplate restTemplate;
+    @Autowired
+    private BookIdIndex bookIdIndex;
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+    @Autowired
+    private BookStatistics bookStatistics;
+    @Autowired
+    private BookCacheInvalidator bookCacheInvalidator;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     private MockRestServiceServer mockServer;
 
@@ -59,6 +77,11 @@ class OldBookControllerIT {
         booksUrl = "http://127.0.0.1:" + port + BOOKS_API_PREFIX;
         mockServer = MockRestServiceServer.bindTo(restTemplate).build();
         mockServer.reset();
+        // The books are reset by @Sql behind the application's back
+        bookIdIndex.reload();
+        bookSearchIndex.reload();
+        bookStatistics.reload();
+        bookCacheInvalidator.invalidateAll();
     }
 
     /**
@@ -118,6 +141,209 @@ class OldBookControllerIT {
         assertEquals(1, oldBookDtos.size());
     }
 
+    @Test
+    void should_find_book_summaries() throws Exception {
+        var requestEntity = RequestEntity.get(new URI(booksUrl + "?view=summary&limit=10")).accept(MediaType.APPLICATION_JSON).build();
+        var responseEntity = testRestTemplate.exchange(requestEntity, new ParameterizedTypeReference<List<Map<String, Object>>>() {
+        });
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotNull(responseEntity.getBody());
+        assertEquals(1, responseEntity.getBody().size());
+        var summary = responseEntity.getBody().getFirst();
+        assertEquals("la case de l oncle tom", summary.get("title"));
+        assertNotNull(summary.get("excerpt"));
+        assertFalse(summary.containsKey("description"));
+        assertFalse(summary.containsKey("isbn13"));
+    }
+
+    @Test
+    void should_get_a_book_excerpt() {
+        var responseEntity = testRestTemplate.getForEntity(booksUrl + "/100/excerpt", String.class);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotNull(responseEntity.getBody());
+        assertEquals(100, responseEntity.getBody().length());
+        assertTrue(responseEntity.getBody().startsWith("Lorem ipsum"));
+        assertEquals(HttpStatus.NOT_FOUND, testRestTemplate.getForEntity(booksUrl + "/999/excerpt", String.class).getStatusCode());
+    }
+
+    @Test
+    void should_filter_books() throws Exception {
+        var requestEntity = RequestEntity.get(new URI(booksUrl + "?author=Harriet%20Beecher%20Stowe&publishedFrom=1800&publishedTo=1900&minRank=4")).accept(MediaType.APPLICATION_JSON).build();
+        var responseEntity = testRestTemplate.exchange(requestEntity, new ParameterizedTypeReference<List<OldBookDto>>() {
+        });
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotNull(responseEntity.getBody());
+        assertEquals(1, responseEntity.getBody().size());
+        assertFalse(responseEntity.getHeaders().containsKey(HttpHeaders.LINK));
+
+        requestEntity = RequestEntity.get(new URI(booksUrl + "?publishedFrom=1900")).accept(MediaType.APPLICATION_JSON).build();
+        responseEntity = testRestTemplate.exchange(requestEntity, new ParameterizedTypeReference<List<OldBookDto>>() {
+        });
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotNull(responseEntity.getBody());
+        assertTrue(responseEntity.getBody().isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void should_get_book_stats() {
+        var responseEntity = testRestTemplate.getForEntity(booksUrl + "/stats", Map.class);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var stats = (Map<String, Object>) responseEntity.getBody();
+        assertNotNull(stats);
+        assertEquals(1, stats.get("count"));
+        assertEquals(1, ((Map<String, Object>) stats.get("rankHistogram")).get("4"));
+        assertEquals(0, ((Map<String, Object>) stats.get("rankHistogram")).get("5"));
+        assertEquals(Map.of("1852", 1), stats.get("countByYear"));
+        assertEquals(Map.of("Harriet Beecher Stowe", 1), stats.get("countByAuthor"));
+
+        testRestTemplate.delete(booksUrl + "/100");
+        stats = (Map<String, Object>) testRestTemplate.getForEntity(booksUrl + "/stats", Map.class).getBody();
+        assertNotNull(stats);
+        assertEquals(0, stats.get("count"));
+        assertTrue(((Map<String, Object>) stats.get("countByAuthor")).isEmpty());
+    }
+
+    @Test
+    void should_drain_before_maintenance() throws Exception {
+        var maintenanceUrl = "http://127.0.0.1:" + port + "/v1/maintenance";
+        try {
+            var responseEntity = testRestTemplate.exchange(RequestEntity.put(new URI(maintenanceUrl)).contentType(MediaType.TEXT_PLAIN).body("true"), Void.class);
+            assertTrue(responseEntity.getStatusCode().is2xxSuccessful());
+            Map<?, ?> maintenance = testRestTemplate.getForObject(maintenanceUrl, Map.class);
+            for (int attempt = 0; attempt < 50 && !Boolean.TRUE.equals(maintenance.get("inMaintenance")); attempt++) {
+                Thread.sleep(100);
+                maintenance = testRestTemplate.getForObject(maintenanceUrl, Map.class);
+            }
+            assertEquals(true, maintenance.get("inMaintenance"));
+            assertEquals("IN_MAINTENANCE", maintenance.get("status"));
+            assertEquals(0, maintenance.get("inFlightRequests"));
+            assertEquals(0, maintenance.get("abandoned"));
+            assertEquals(HttpStatus.I_AM_A_TEAPOT, testRestTemplate.getForEntity(booksUrl + "/count", String.class).getStatusCode());
+        } finally {
+            testRestTemplate.exchange(RequestEntity.put(new URI(maintenanceUrl)).contentType(MediaType.TEXT_PLAIN).body("false"), Void.class);
+        }
+        assertEquals(HttpStatus.OK, testRestTemplate.getForEntity(booksUrl + "/count", String.class).getStatusCode());
+    }
+
+    @Test
+    void should_serve_reads_in_read_only_maintenance() throws Exception {
+        var maintenanceUrl = "http://127.0.0.1:" + port + "/v1/maintenance";
+        try {
+            var responseEntity = testRestTemplate.exchange(RequestEntity.put(new URI(maintenanceUrl)).contentType(MediaType.TEXT_PLAIN).body("read-only"), Void.class);
+            assertTrue(responseEntity.getStatusCode().is2xxSuccessful());
+            Map<?, ?> maintenance = testRestTemplate.getForObject(maintenanceUrl, Map.class);
+            for (int attempt = 0; attempt < 50 && !"READ_ONLY".equals(maintenance.get("status")); attempt++) {
+                Thread.sleep(100);
+                maintenance = testRestTemplate.getForObject(maintenanceUrl, Map.class);
+            }
+            assertEquals("READ_ONLY", maintenance.get("status"));
+            assertEquals(false, maintenance.get("inMaintenance"));
+            assertEquals(HttpStatus.OK, testRestTemplate.getForEntity(booksUrl + "/count", String.class).getStatusCode());
+            assertEquals(HttpStatus.OK, testRestTemplate.getForEntity(booksUrl + "/100", String.class).getStatusCode());
+            assertEquals(HttpStatus.OK, testRestTemplate.getForEntity(booksUrl + "/random", String.class).getStatusCode());
+            var books = testRestTemplate.exchange(RequestEntity.get(new URI(booksUrl + "?author=Harriet%20Beecher%20Stowe")).accept(MediaType.APPLICATION_JSON).build(),
+                    new ParameterizedTypeReference<List<Map<String, Object>>>() {
+                    });
+            assertEquals(HttpStatus.OK, books.getStatusCode());
+            assertNotNull(books.getBody());
+            assertEquals(1, books.getBody().size());
+            assertEquals(HttpStatus.I_AM_A_TEAPOT, testRestTemplate.exchange(RequestEntity.delete(new URI(booksUrl + "/100")).build(), String.class).getStatusCode());
+            assertEquals(HttpStatus.I_AM_A_TEAPOT, testRestTemplate.getForEntity(booksUrl + "/search?q=tom", String.class).getStatusCode());
+        } finally {
+            testRestTemplate.exchange(RequestEntity.put(new URI(maintenanceUrl)).contentType(MediaType.TEXT_PLAIN).body("false"), Void.class);
+        }
+        assertEquals(HttpStatus.OK, testRestTemplate.getForEntity(booksUrl + "/100", String.class).getStatusCode());
+    }
+
+    @Test
+    void should_search_books() throws Exception {
+        var requestEntity = RequestEntity.get(new URI(booksUrl + "/search?q=Oncle%20Tom")).accept(MediaType.APPLICATION_JSON).build();
+        var responseEntity = testRestTemplate.exchange(requestEntity, new ParameterizedTypeReference<List<Map<String, Object>>>() {
+        });
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals("1", responseEntity.getHeaders().getFirst("X-Total-Count"));
+        assertNotNull(responseEntity.getBody());
+        assertEquals(1, responseEntity.getBody().size());
+        assertEquals(100, responseEntity.getBody().getFirst().get("id"));
+        assertFalse(responseEntity.getHeaders().containsKey(HttpHeaders.LINK));
+
+        requestEntity = RequestEntity.get(new URI(booksUrl + "/search?q=tolkien")).accept(MediaType.APPLICATION_JSON).build();
+        responseEntity = testRestTemplate.exchange(requestEntity, new ParameterizedTypeReference<List<Map<String, Object>>>() {
+        });
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals("0", responseEntity.getHeaders().getFirst("X-Total-Count"));
+        assertNotNull(responseEntity.getBody());
+        assertTrue(responseEntity.getBody().isEmpty());
+    }
+
+    @Test
+    void should_find_books_page_by_page() throws Exception {
+        var requestEntity = RequestEntity.get(new URI(booksUrl + "?limit=1")).accept(MediaType.APPLICATION_JSON).build();
+        var responseEntity = testRestTemplate.exchange(requestEntity, new ParameterizedTypeReference<List<OldBookDto>>() {
+        });
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotNull(responseEntity.getBody());
+        assertEquals(1, responseEntity.getBody().size());
+        assertNull(responseEntity.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+    @Test
+    @Sql("classpath:/books-pages-data.sql")
+    void should_walk_through_all_the_pages() throws Exception {
+        assertEquals(List.of(100L, 101L, 105L, 110L, 111L, 200L, 300L), walkThroughPages(booksUrl + "?limit=3", 3));
+        assertEquals(List.of(101L, 105L, 110L, 300L), walkThroughPages(booksUrl + "?limit=2&author=George%20Orwell", 2));
+        assertEquals(List.of(100L, 101L, 105L, 110L, 111L, 200L, 300L), walkThroughPages(booksUrl + "?limit=7", 7));
+    }
+
+    /**
+     * Follows the <code>Link</code> headers from the first page to the last one
+     *
+     * @return the IDs of all the books read, in the order of the pages
+     */
+    private List<Long> walkThroughPages(String firstPageUrl, int limit) throws URISyntaxException {
+        var ids = new ArrayList<Long>();
+        var uri = new URI(firstPageUrl);
+        var pages = 0;
+        while (uri != null && pages++ < 10) {
+            var responseEntity = testRestTemplate.exchange(RequestEntity.get(uri).accept(MediaType.APPLICATION_JSON).build(), new ParameterizedTypeReference<List<OldBookDto>>() {
+            });
+            assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+            assertNotNull(responseEntity.getBody());
+            assertTrue(responseEntity.getBody().size() <= limit);
+            responseEntity.getBody().forEach(book -> ids.add(book.getId()));
+            var link = responseEntity.getHeaders().getFirst(HttpHeaders.LINK);
+            if (link == null) {
+                uri = null;
+            } else {
+                assertEquals(limit, responseEntity.getBody().size());
+                assertTrue(link.endsWith(">; rel=\"next\""));
+                uri = new URI(link.substring(1, link.indexOf('>')));
+            }
+        }
+        assertNull(uri);
+        // Ordered by ID: neither duplicate nor gap between the pages
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+        return ids;
+    }
+
+    @Test
+    void should_reject_an_invalid_cursor() throws Exception {
+        var responseEntity = testRestTemplate.getForEntity(booksUrl + "?cursor=%%%", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+    }
+
+    @Test
+    void should_export_all_books() throws Exception {
+        var requestEntity = RequestEntity.get(new URI(booksUrl + "/export")).accept(MediaType.APPLICATION_NDJSON).build();
+        var responseEntity = testRestTemplate.exchange(requestEntity, String.class);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotNull(responseEntity.getBody());
+        var lines = responseEntity.getBody().lines().toList();
+        assertEquals(1, lines.size());
+        assertEquals(100L, mapper.readValue(lines.getFirst(), OldBookDto.class).getId());
+    }
+
     @Test
     void should_get_a_count() throws Exception {
         var requestEntity = RequestEntity.get(new URI(booksUrl + "/count")).accept(MediaType.APPLICATION_JSON).build();
@@ -137,6 +363,17 @@ class OldBookControllerIT {
         assertEquals(100L, oldBookDto.getId());
     }
 
+    @Test
+    void should_serve_a_book_from_the_cache_until_it_is_invalidated() {
+        assertEquals("la case de l oncle tom", testRestTemplate.getForObject(booksUrl + "/100", OldBookDto.class).getTitle());
+        jdbcTemplate.update("update book set title = ? where id = 100", "Uncle Tom's cabin");
+        // Cache hit: the database is not read
+        assertEquals("la case de l oncle tom", testRestTemplate.getForObject(booksUrl + "/100", OldBookDto.class).getTitle());
+
+        bookCacheInvalidator.invalidate(100L);
+        assertEquals("Uncle Tom's cabin", testRestTemplate.getForObject(booksUrl + "/100", OldBookDto.class).getTitle());
+    }
+
     @Test
     void should_find_no_book() throws Exception {
         var responseEntity = testRestTemplate.getForEntity(booksUrl + "/999", OldBookDto.class);
@@ -144,6 +381,52 @@ class OldBookControllerIT {
         assertFalse(responseEntity.hasBody());
     }
 
+    @Test
+    void should_not_return_an_unmodified_book() throws Exception {
+        var responseEntity = testRestTemplate.getForEntity(booksUrl + "/100", OldBookDto.class);
+        var eTag = responseEntity.getHeaders().getETag();
+        assertNotNull(eTag);
+        var requestEntity = RequestEntity.get(new URI(booksUrl + "/100")).header(HttpHeaders.IF_NONE_MATCH, eTag).build();
+        var notModifiedResponseEntity = testRestTemplate.exchange(requestEntity, OldBookDto.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModifiedResponseEntity.getStatusCode());
+        assertEquals(eTag, notModifiedResponseEntity.getHeaders().getETag());
+        assertFalse(notModifiedResponseEntity.hasBody());
+    }
+
+    @Test
+    void should_not_read_the_catalog_version_from_the_database_for_a_page() throws Exception {
+        var eTag = testRestTemplate.getForEntity(booksUrl + "?limit=1", OldBookDto[].class).getHeaders().getETag();
+        assertNotNull(eTag);
+        // Modified behind the application's back: the ETag is computed from the in-memory statistics
+        jdbcTemplate.update("update book set version = version + 1 where id = 100");
+        var requestEntity = RequestEntity.get(new URI(booksUrl + "?limit=1")).header(HttpHeaders.IF_NONE_MATCH, eTag).build();
+        assertEquals(HttpStatus.NOT_MODIFIED, testRestTemplate.exchange(requestEntity, OldBookDto[].class).getStatusCode());
+
+        bookStatistics.reconcile();
+        var responseEntity = testRestTemplate.exchange(requestEntity, OldBookDto[].class);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotEquals(eTag, responseEntity.getHeaders().getETag());
+    }
+
+    @Test
+    void should_change_the_etag_of_the_books_when_a_book_is_replaced() throws Exception {
+        var eTag = testRestTemplate.getForEntity(booksUrl, OldBookDto[].class).getHeaders().getETag();
+        assertNotNull(eTag);
+        // Same number of books, and the new ID may be lower than the deleted one
+        testRestTemplate.delete(booksUrl + "/100");
+        createMockServerStandard();
+        var oldBookDto = new OldBookDto();
+        oldBookDto.setAuthor("George Orwell");
+        oldBookDto.setTitle("Animal's farm");
+        assertEquals(HttpStatus.CREATED, testRestTemplate.postForEntity(booksUrl, oldBookDto, OldBookDto.class).getStatusCode());
+
+        var requestEntity = RequestEntity.get(new URI(booksUrl)).header(HttpHeaders.IF_NONE_MATCH, eTag).build();
+        var responseEntity = testRestTemplate.exchange(requestEntity, OldBookDto[].class);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(1, responseEntity.getBody().length);
+        assertNotEquals(eTag, responseEntity.getHeaders().getETag());
+    }
+
     @Test
     void should_register_a_book_successfully() throws Exception {
         createMockServerStandard();
@@ -154,10 +437,103 @@ class OldBookControllerIT {
         assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
         var uri = responseEntity.getHeaders().getLocation();
         assertNotNull(uri);
-        assertTrue(uri.getPath().matches(BOOKS_API_PREFIX + "/[1-9]+$"));
+        assertTrue(uri.getPath().matches(BOOKS_API_PREFIX + "/[1-9][0-9]*$"));
+        mockServer.verify();
+    }
+
+    @Test
+    void should_register_a_book_asynchronously() throws Exception {
+        createMockServerStandard();
+        var oldBookDto = new OldBookDto();
+        oldBookDto.setAuthor("George Orwell");
+        oldBookDto.setTitle("Animal's farm");
+        var requestEntity = RequestEntity.post(new URI(booksUrl)).header("Prefer", "respond-async").body(oldBookDto);
+        var responseEntity = testRestTemplate.exchange(requestEntity, String.class);
+        assertEquals(HttpStatus.ACCEPTED, responseEntity.getStatusCode());
+        var uri = responseEntity.getHeaders().getLocation();
+        assertNotNull(uri);
+        assertTrue(uri.getPath().matches(BOOKS_API_PREFIX + "/registrations/[0-9a-f-]+$"));
+
+        Map<String, Object> registration = Map.of();
+        var max = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < max && !"COMPLETED".equals(registration.get("status"))) {
+            registration = testRestTemplate.exchange(RequestEntity.get(uri).build(), new ParameterizedTypeReference<Map<String, Object>>() {
+            }).getBody();
+            assertNotNull(registration);
+        }
+        assertEquals("COMPLETED", registration.get("status"));
+        assertTrue(registration.get("bookUri").toString().matches(".*" + BOOKS_API_PREFIX + "/[1-9][0-9]*$"));
+        mockServer.verify();
+    }
+
+    @Test
+    void should_register_books_in_batch() throws Exception {
+        var isbnNumbers = new IsbnNumbers();
+        isbnNumbers.setIsbn10("0123456789");
+        isbnNumbers.setIsbn13("0123456789012");
+        mockServer.expect(ExpectedCount.once(),
+                        requestTo(new URI(isbnAPIURL + "/batch?count=2")))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.OK)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(mapper.writeValueAsString(List.of(isbnNumbers, isbnNumbers))));
+        var animalFarm = new OldBookDto();
+        animalFarm.setAuthor("George Orwell");
+        animalFarm.setTitle("Animal's farm");
+        var nineteenEightyFour = new OldBookDto();
+        nineteenEightyFour.setAuthor("George Orwell");
+        nineteenEightyFour.setTitle("1984");
+        var responseEntity = testRestTemplate.exchange(RequestEntity.post(new URI(booksUrl + "/batch")).body(List.of(animalFarm, nineteenEightyFour)),
+                new ParameterizedTypeReference<Map<String, Object>>() {
+                });
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var result = responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(2, result.get("created"));
+        assertEquals(0, result.get("rejected"));
         mockServer.verify();
     }
 
+    @Test
+    @Sql("classpath:/books-seeded-data.sql")
+    void should_register_books_in_batch_after_the_seeded_books() throws Exception {
+        var isbnNumbers = new IsbnNumbers();
+        isbnNumbers.setIsbn10("0123456789");
+        isbnNumbers.setIsbn13("0123456789012");
+        // more than two blocks of IDs reserved by the sequence
+        var count = 120;
+        mockServer.expect(ExpectedCount.once(),
+                        requestTo(new URI(isbnAPIURL + "/batch?count=" + count)))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.OK)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(mapper.writeValueAsString(Collections.nCopies(count, isbnNumbers))));
+        var books = new ArrayList<OldBookDto>();
+        for (int i = 0; i < count; i++) {
+            var book = new OldBookDto();
+            book.setAuthor("George Orwell");
+            book.setTitle("Animal's farm " + i);
+            books.add(book);
+        }
+        var responseEntity = testRestTemplate.exchange(RequestEntity.post(new URI(booksUrl + "/batch")).body(books),
+                new ParameterizedTypeReference<Map<String, Object>>() {
+                });
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var result = responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(count, result.get("created"));
+        assertEquals(0, result.get("rejected"));
+        assertEquals(1100 + count, jdbcTemplate.queryForObject("select count(*) from book", Integer.class));
+        assertEquals(count, jdbcTemplate.queryForObject("select count(*) from book where id > 1100", Integer.class));
+        mockServer.verify();
+    }
+
+    @Test
+    void should_find_no_registration() throws Exception {
+        var responseEntity = testRestTemplate.getForEntity(booksUrl + "/registrations/" + UUID.randomUUID(), String.class);
+        assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
+    }
+
     @Test
     void should_throw_a_timeout_while_registering() throws Exception {
         createMockServerTimeout();
@@ -178,6 +554,70 @@ class OldBookControllerIT {
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
     }
 
+    @Test
+    void should_not_update_a_modified_book() throws Exception {
+        var book = new OldBookDto();
+        book.setId(100L);
+        book.setAuthor("George Orwell");
+        book.setTitle("Animal's farm");
+        var requestEntity = RequestEntity.put(new URI(booksUrl)).header(HttpHeaders.IF_MATCH, "\"999\"").body(book);
+        var responseEntity = testRestTemplate.exchange(requestEntity, String.class);
+        assertEquals(HttpStatus.PRECONDITION_FAILED, responseEntity.getStatusCode());
+    }
+
+    @Test
+    void should_reject_a_malformed_if_match() throws Exception {
+        var book = new OldBookDto();
+        book.setId(100L);
+        book.setAuthor("George Orwell");
+        book.setTitle("Animal's farm");
+        for (var ifMatch : List.of("999", "\"abc\"", "\"-1\"")) {
+            var requestEntity = RequestEntity.put(new URI(booksUrl)).header(HttpHeaders.IF_MATCH, ifMatch).body(book);
+            var responseEntity = testRestTemplate.exchange(requestEntity, String.class);
+            assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode(), ifMatch);
+        }
+        assertEquals("la case de l oncle tom", jdbcTemplate.queryForObject("select title from book where id = 100", String.class));
+    }
+
+    @Test
+    void should_update_an_existing_book_with_any_etag() throws Exception {
+        var book = new OldBookDto();
+        book.setId(100L);
+        book.setAuthor("George Orwell");
+        book.setTitle("Animal's farm");
+        var requestEntity = RequestEntity.put(new URI(booksUrl)).header(HttpHeaders.IF_MATCH, "*").body(book);
+        var responseEntity = testRestTemplate.exchange(requestEntity, OldBookDto.class);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+    }
+
+    @Test
+    void should_not_update_a_missing_book_with_any_etag() throws Exception {
+        var book = new OldBookDto();
+        book.setId(999L);
+        book.setAuthor("George Orwell");
+        book.setTitle("Animal's farm");
+        var requestEntity = RequestEntity.put(new URI(booksUrl)).header(HttpHeaders.IF_MATCH, "*").body(book);
+        var responseEntity = testRestTemplate.exchange(requestEntity, String.class);
+        assertEquals(HttpStatus.PRECONDITION_FAILED, responseEntity.getStatusCode());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from book where id = 999", Integer.class));
+    }
+
+    @Test
+    void should_update_books_in_bulk() throws Exception {
+        var bulkUpdate = Map.of("selection", Map.of("ids", List.of(100L, 999L)), "changes", Map.of("rank", 5));
+        var requestEntity = RequestEntity.put(new URI(booksUrl + "/batch")).body(bulkUpdate);
+        var responseEntity = testRestTemplate.exchange(requestEntity, new ParameterizedTypeReference<Map<String, Object>>() {
+        });
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var result = responseEntity.getBody();
+        assertNotNull(result);
+        assertEquals(1, result.get("affected"));
+        assertEquals(1, result.get("chunks"));
+        var book = testRestTemplate.getForEntity(booksUrl + "/100", OldBookDto.class).getBody();
+        assertNotNull(book);
+        assertEquals(5, book.getRank());
+    }
+
     @Test
     void should_delete_book() throws Exception {
         testRestTemplate.delete(booksUrl + "/100");
@@ -0,0 +1,152 @@
+package info.touret.bookstore.spring.book.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import info.touret.bookstore.spring.book.registration.BookRegistrationQueue;
+import info.touret.bookstore.spring.book.service.BookService;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookJournalReplayerTest {
+
+    @TempDir
+    Path directory;
+
+    private final BookService bookService = mock(BookService.class);
+    private final BookRegistrationQueue bookRegistrationQueue = mock(BookRegistrationQueue.class);
+    private final MaintenanceDrain maintenanceDrain = mock(MaintenanceDrain.class);
+    private final List<String> registeredTitles = new ArrayList<>();
+    private BookJournal bookJournal;
+    private BookJournalReplayer bookJournalReplayer;
+
+    @BeforeEach
+    void setUp() {
+        bookJournal = new BookJournal(directory, 16_384, new ObjectMapper(), new SimpleMeterRegistry());
+        bookJournal.open();
+        bookJournalReplayer = new BookJournalReplayer(bookJournal, bookService, bookRegistrationQueue, maintenanceDrain, true, 10);
+        when(maintenanceDrain.getPhase()).thenReturn(MaintenanceDrain.Phase.ACCEPTING);
+        bookJournal.append(createBook("Animal's farm"));
+        bookJournal.append(createBook("1984"));
+        bookJournal.append(createBook("Homage to Catalonia"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        bookJournal.close();
+    }
+
+    private static Book createBook(String title) {
+        var book = new Book();
+        book.setTitle(title);
+        book.setAuthor("George Orwell");
+        return book;
+    }
+
+    /**
+     * Registers the books, except "1984" which gets the given exception
+     */
+    private void failOn1984(RuntimeException exception) {
+        doAnswer(invocation -> {
+            Book book = invocation.getArgument(0);
+            if ("1984".equals(book.getTitle())) {
+                throw exception;
+            }
+            registeredTitles.add(book.getTitle());
+            return book;
+        }).when(bookService).replayBook(any(Book.class));
+    }
+
+    private void registerAll() {
+        doAnswer(invocation -> {
+            Book book = invocation.getArgument(0);
+            registeredTitles.add(book.getTitle());
+            return book;
+        }).when(bookService).replayBook(any(Book.class));
+    }
+
+    @Test
+    void should_replay_all_the_books() {
+        registerAll();
+        bookJournalReplayer.replay();
+        assertEquals(List.of("Animal's farm", "1984", "Homage to Catalonia"), registeredTitles);
+        assertEquals(0, bookJournal.backlog());
+    }
+
+    @Test
+    void should_keep_the_failing_book_when_the_database_is_not_available() {
+        failOn1984(new DataAccessResourceFailureException("Connection refused"));
+        bookJournalReplayer.replay();
+        assertEquals(List.of("Animal's farm"), registeredTitles);
+        assertEquals(2, bookJournal.backlog());
+
+        // The next run starts again from the failing book
+        registerAll();
+        bookJournalReplayer.replay();
+        assertEquals(List.of("Animal's farm", "1984", "Homage to Catalonia"), registeredTitles);
+        assertEquals(0, bookJournal.backlog());
+    }
+
+    @Test
+    void should_keep_the_failing_book_when_the_numbers_api_is_not_accessible() {
+        failOn1984(new ApiCallTimeoutException("Numbers not accessible"));
+        bookJournalReplayer.replay();
+        assertEquals(List.of("Animal's farm"), registeredTitles);
+        assertEquals(2, bookJournal.backlog());
+        assertEquals("1984", bookJournal.read(1).getFirst().book().getTitle());
+    }
+
+    @Test
+    void should_skip_a_book_violating_a_database_constraint() {
+        failOn1984(new DataIntegrityViolationException("duplicate key"));
+        bookJournalReplayer.replay();
+        assertEquals(List.of("Animal's farm", "Homage to Catalonia"), registeredTitles);
+        assertEquals(0, bookJournal.backlog());
+    }
+
+    @Test
+    void should_complete_the_registration_of_a_replayed_book() {
+        var ticket = UUID.randomUUID();
+        var book = createBook("Burmese days");
+        book.setRegistrationTicket(ticket);
+        bookJournal.append(book);
+        doAnswer(invocation -> {
+            Book replayed = invocation.getArgument(0);
+            replayed.setId(42L);
+            return replayed;
+        }).when(bookService).replayBook(any(Book.class));
+
+        bookJournalReplayer.replay();
+
+        verify(bookRegistrationQueue).completeJournaled(ticket, 42L);
+        assertEquals(0, bookJournal.backlog());
+    }
+
+    @Test
+    void should_not_replay_during_the_maintenance() {
+        registerAll();
+        when(maintenanceDrain.getPhase()).thenReturn(MaintenanceDrain.Phase.READ_ONLY);
+        bookJournalReplayer.replay();
+        assertEquals(List.of(), registeredTitles);
+        assertEquals(3, bookJournal.backlog());
+    }
+}
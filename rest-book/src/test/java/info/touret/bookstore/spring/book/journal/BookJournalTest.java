@@ -0,0 +1,108 @@
+package info.touret.bookstore.spring.book.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import info.touret.bookstore.spring.book.entity.Book;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private BookJournal bookJournal;
+
+    private BookJournal openJournal(long maxSegmentSize) {
+        var journal = new BookJournal(directory, maxSegmentSize, new ObjectMapper(), new SimpleMeterRegistry());
+        journal.open();
+        return journal;
+    }
+
+    private Book createBook(String title) {
+        var book = new Book();
+        book.setTitle(title);
+        book.setAuthor("George Orwell");
+        return book;
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        bookJournal.close();
+    }
+
+    @Test
+    void should_read_appended_books_in_order() {
+        bookJournal = openJournal(16_384);
+        bookJournal.append(createBook("Animal's farm"));
+        bookJournal.append(createBook("1984"));
+
+        var entries = bookJournal.read(10);
+        assertEquals(2, entries.size());
+        assertEquals("Animal's farm", entries.get(0).book().getTitle());
+        assertEquals("1984", entries.get(1).book().getTitle());
+        assertEquals(2, bookJournal.backlog());
+    }
+
+    @Test
+    void should_not_read_acknowledged_books_again() throws IOException {
+        bookJournal = openJournal(16_384);
+        bookJournal.append(createBook("Animal's farm"));
+        bookJournal.append(createBook("1984"));
+        bookJournal.acknowledge(bookJournal.read(1).getFirst(), 1);
+        bookJournal.close();
+
+        bookJournal = openJournal(16_384);
+        var entries = bookJournal.read(10);
+        assertEquals(1, entries.size());
+        assertEquals("1984", entries.getFirst().book().getTitle());
+        assertEquals(1, bookJournal.backlog());
+    }
+
+    @Test
+    void should_rotate_segments_and_remove_replayed_ones() throws IOException {
+        bookJournal = openJournal(100);
+        for (int i = 0; i < 5; i++) {
+            bookJournal.append(createBook("Book " + i));
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(5, files.count());
+        }
+
+        var entries = bookJournal.read(10);
+        assertEquals(5, entries.size());
+        bookJournal.acknowledge(entries.getLast(), entries.size());
+        assertEquals(0, bookJournal.backlog());
+        assertTrue(bookJournal.read(10).isEmpty());
+        try (var files = Files.list(directory)) {
+            // the last segment and the checkpoint
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void should_drop_a_partially_written_record() throws IOException {
+        bookJournal = openJournal(16_384);
+        bookJournal.append(createBook("Animal's farm"));
+        bookJournal.close();
+        try (var files = Files.list(directory)) {
+            var segment = files.findFirst().orElseThrow();
+            Files.write(segment, new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+        }
+
+        bookJournal = openJournal(16_384);
+        bookJournal.append(createBook("1984"));
+        var entries = bookJournal.read(10);
+        assertEquals(2, entries.size());
+        assertEquals("1984", entries.get(1).book().getTitle());
+    }
+}
@@ -0,0 +1,114 @@
+package info.touret.bookstore.spring.book.registration;
+
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import info.touret.bookstore.spring.book.service.BookService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookRegistrationQueueTest {
+
+    private final BookService bookService = mock(BookService.class);
+    private final BookRegistrationQueue bookRegistrationQueue = new BookRegistrationQueue(bookService, 10, 1, 600, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        bookRegistrationQueue.shutdown();
+    }
+
+    private BookRegistration awaitStatusChange(UUID ticket) throws InterruptedException {
+        return awaitStatusChange(bookRegistrationQueue, ticket);
+    }
+
+    private static BookRegistration awaitStatusChange(BookRegistrationQueue queue, UUID ticket) throws InterruptedException {
+        var registration = queue.find(ticket).orElseThrow();
+        for (int attempt = 0; attempt < 100 && registration.getStatus() == BookRegistration.Status.PENDING; attempt++) {
+            Thread.sleep(20);
+        }
+        return registration;
+    }
+
+    @Test
+    void should_complete_the_registration_of_a_journaled_book_once_replayed() throws InterruptedException {
+        var book = new Book();
+        book.setTitle("Animal's farm");
+        when(bookService.registerBook(any(Book.class))).thenThrow(new ApiCallTimeoutException("Numbers not accessible"));
+
+        var ticket = bookRegistrationQueue.submit(book);
+        var registration = awaitStatusChange(ticket);
+        assertEquals(BookRegistration.Status.JOURNALED, registration.getStatus());
+        assertEquals(ticket, book.getRegistrationTicket());
+        assertNull(registration.getCompletedAt());
+        assertNotNull(registration.getJournaledAt());
+
+        // Journaled registrations are kept during the retention
+        bookRegistrationQueue.purge();
+        bookRegistrationQueue.completeJournaled(ticket, 42L);
+
+        registration = bookRegistrationQueue.find(ticket).orElseThrow();
+        assertEquals(BookRegistration.Status.COMPLETED, registration.getStatus());
+        assertEquals(42L, registration.getBookId());
+    }
+
+    @Test
+    void should_purge_a_journaled_registration_after_the_retention() throws InterruptedException {
+        var queue = new BookRegistrationQueue(bookService, 10, 1, 0, new SimpleMeterRegistry());
+        try {
+            when(bookService.registerBook(any(Book.class))).thenThrow(new ApiCallTimeoutException("Numbers not accessible"));
+            var ticket = queue.submit(new Book());
+            assertEquals(BookRegistration.Status.JOURNALED, awaitStatusChange(queue, ticket).getStatus());
+            Thread.sleep(10);
+
+            queue.purge();
+
+            assertTrue(queue.find(ticket).isEmpty());
+            // The book replayed afterwards is ignored
+            queue.completeJournaled(ticket, 42L);
+            assertTrue(queue.find(ticket).isEmpty());
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    void should_fail_the_registration_of_a_journaled_book_which_cannot_be_replayed() throws InterruptedException {
+        when(bookService.registerBook(any(Book.class))).thenThrow(new ApiCallTimeoutException("Numbers not accessible"));
+        var ticket = bookRegistrationQueue.submit(new Book());
+        awaitStatusChange(ticket);
+
+        bookRegistrationQueue.failJournaled(ticket, "Invalid book");
+
+        var registration = bookRegistrationQueue.find(ticket).orElseThrow();
+        assertEquals(BookRegistration.Status.FAILED, registration.getStatus());
+        assertEquals("Invalid book", registration.getReason());
+    }
+
+    @Test
+    void should_ignore_the_replay_of_an_unknown_or_finished_registration() throws InterruptedException {
+        var book = new Book();
+        book.setId(1L);
+        when(bookService.registerBook(any(Book.class))).thenReturn(book);
+        var ticket = bookRegistrationQueue.submit(book);
+        awaitStatusChange(ticket);
+
+        bookRegistrationQueue.completeJournaled(ticket, 42L);
+        bookRegistrationQueue.completeJournaled(UUID.randomUUID(), 42L);
+        bookRegistrationQueue.completeJournaled(null, 42L);
+
+        var registration = bookRegistrationQueue.find(ticket).orElseThrow();
+        assertEquals(BookRegistration.Status.COMPLETED, registration.getStatus());
+        assertEquals(1L, registration.getBookId());
+        assertTrue(bookRegistrationQueue.find(UUID.randomUUID()).isEmpty());
+    }
+}
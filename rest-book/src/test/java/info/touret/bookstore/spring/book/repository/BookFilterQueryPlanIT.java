@@ -0,0 +1,86 @@
+package info.touret.bookstore.spring.book.repository;
+
+import info.touret.bookstore.spring.book.dto.BookFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that only the predicates of the criteria provided are written, and that every filter is served by the index of its column.
+ * The plans are the ones of H2, computed on 10,000 generated books: on a table of a few rows, any plan is cheap.
+ * They show that the indexes can serve the queries, not the plans PostgreSQL picks on the production data.
+ */
+@SpringBootTest
+@Sql({"classpath:/books-data.sql", "classpath:/books-plan-data.sql"})
+class BookFilterQueryPlanIT {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private BookRepository bookRepository;
+
+    private String explain(BookFilter filter, long afterId) {
+        return explain(BookFilterQuery.BOOK_COLUMNS, filter, afterId);
+    }
+
+    private String explain(String columns, BookFilter filter, long afterId) {
+        var query = new BookFilterQuery(columns, filter, afterId, 10);
+        return jdbcTemplate.queryForObject("explain " + query.sql(), String.class, query.parameters().toArray()).toLowerCase(Locale.ROOT);
+    }
+
+    @Test
+    void should_write_only_the_predicates_of_the_criteria_provided() {
+        assertEquals("select * from book order by id limit ?", new BookFilterQuery(BookFilterQuery.BOOK_COLUMNS, BookFilter.NONE, 0, 10).sql());
+        var query = new BookFilterQuery(BookFilterQuery.ID_COLUMNS, new BookFilter("George Orwell", null, 1949, null, null, null, null), 100, 10);
+        assertEquals("select id from book where id > ? and author = ? and year_of_publication <= ? order by id limit ?", query.sql());
+        assertEquals(List.of(100L, "George Orwell", 1949, 10), query.parameters());
+    }
+
+    @Test
+    void should_use_the_author_index() {
+        var filter = new BookFilter("Harriet Beecher Stowe", null, null, null, null, null, null);
+        assertTrue(explain(filter, 0).contains("book_author_idx"));
+        assertTrue(explain(filter, 100).contains("book_author_idx"));
+        assertTrue(explain(BookFilterQuery.ID_COLUMNS, filter, 100).contains("book_author_idx"));
+    }
+
+    @Test
+    void should_use_the_year_of_publication_index() {
+        assertTrue(explain(new BookFilter(null, 1800, 1900, null, null, null, null), 0).contains("book_year_of_publication_idx"));
+        assertTrue(explain(new BookFilter(null, 1800, null, null, null, null, null), 0).contains("book_year_of_publication_idx"));
+    }
+
+    @Test
+    void should_use_the_rank_index() {
+        assertTrue(explain(new BookFilter(null, null, null, 4, 8, null, null), 0).contains("book_rank_idx"));
+    }
+
+    @Test
+    void should_use_the_price_index() {
+        assertTrue(explain(new BookFilter(null, null, null, null, null, BigDecimal.ONE, BigDecimal.TEN), 0).contains("book_price_idx"));
+    }
+
+    @Test
+    void should_find_books_by_filter() {
+        assertEquals(1, bookRepository.findByFilter(new BookFilter("Harriet Beecher Stowe", 1800, 1900, 4, 5, null, null), 0, 10).size());
+        assertTrue(bookRepository.findByFilter(new BookFilter(null, 1900, null, null, null, null, null), 0, 10).isEmpty());
+        assertEquals(1, bookRepository.findSummariesByFilter(new BookFilter("Harriet Beecher Stowe", null, 1852, null, null, null, null), 0, 10).size());
+    }
+
+    @Test
+    void should_find_the_ids_by_filter_chunk_by_chunk() {
+        var filter = new BookFilter("Author 7", null, null, null, null, null, null);
+        assertEquals(List.of(1007L, 2007L, 3007L, 4007L, 5007L), bookRepository.findIdsByFilter(filter, 0, 5));
+        assertEquals(List.of(6007L, 7007L, 8007L, 9007L, 10007L), bookRepository.findIdsByFilter(filter, 5007, 5));
+        assertTrue(bookRepository.findIdsByFilter(filter, 10007, 5).isEmpty());
+    }
+}
@@ -0,0 +1,98 @@
+package info.touret.bookstore.spring.book.search;
+
+import info.touret.bookstore.spring.book.dto.BookText;
+import info.touret.bookstore.spring.book.entity.Book;
+import info.touret.bookstore.spring.book.repository.BookRepository;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InMemoryBookSearchIndexTest {
+
+    private static final List<BookText> BOOK_TEXTS = List.of(
+            new BookText(1L, "Animal Farm", "George Orwell", "A fairy story about a farm"),
+            new BookText(2L, "1984", "George Orwell", "A dystopian novel"),
+            new BookText(3L, "Farm life", "John Doe", null),
+            new BookText(4L, "Cooking", "Jane Roe", "Recipes from the farm"));
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final MaintenanceDrain maintenanceDrain = mock(MaintenanceDrain.class);
+    private final InMemoryBookSearchIndex bookSearchIndex = new InMemoryBookSearchIndex(bookRepository, maintenanceDrain);
+
+    private List<Long> search(String query) {
+        return bookSearchIndex.search(query, PageRequest.of(0, 10)).getContent();
+    }
+
+    private static Book createBook(Long id, String title, String author) {
+        var book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+
+    @Test
+    void should_split_the_text_into_lower_case_words_without_accents() {
+        assertEquals(Map.of("les", 1, "miserables", 1, "elodie", 2, "cafe", 1), InMemoryBookSearchIndex.tokenize("Les Misérables: Élodie's CAFÉ, élodie"));
+    }
+
+    @Test
+    void should_ignore_the_words_shorter_than_two_characters() {
+        assertEquals(Map.of("tale", 1, "of", 1, "cities", 1), InMemoryBookSearchIndex.tokenize("A tale of 2 cities"));
+        assertTrue(InMemoryBookSearchIndex.tokenize(null).isEmpty());
+        assertTrue(InMemoryBookSearchIndex.tokenize(" - ").isEmpty());
+    }
+
+    @Test
+    void should_rank_the_books_matching_the_most_words_first_then_by_weighted_score() {
+        when(bookRepository.streamAllTexts()).thenReturn(BOOK_TEXTS.stream());
+        bookSearchIndex.reload();
+
+        // 1 matches both words. Then "farm" in the title (3) comes before "orwell" in the author (2), rarer but weighted less, and "farm" in the description (4)
+        assertEquals(List.of(1L, 3L, 2L, 4L), search("Orwell farm"));
+        // Same score: ordered by ID
+        assertEquals(List.of(1L, 2L), search("george"));
+        assertEquals(List.of(4L), search("recipes"));
+        assertTrue(search("x").isEmpty());
+    }
+
+    @Test
+    void should_keep_the_changes_made_during_a_reload() {
+        // The changes are made while the books are being read
+        when(bookRepository.streamAllTexts()).thenReturn(Stream.of(BOOK_TEXTS.get(0), BOOK_TEXTS.get(1)).peek(bookText -> {
+            if (bookText.id() == 1L) {
+                bookSearchIndex.index(createBook(5L, "Homage to Catalonia", "George Orwell"));
+                bookSearchIndex.remove(List.of(2L));
+            }
+        }));
+        bookSearchIndex.reload();
+
+        assertEquals(List.of(1L, 5L), search("orwell"));
+        assertTrue(search("dystopian").isEmpty());
+        assertEquals(List.of(5L), search("catalonia"));
+    }
+
+    @Test
+    void should_rebuild_only_while_accepting_the_requests() {
+        when(bookRepository.streamAllTexts()).thenReturn(BOOK_TEXTS.stream());
+
+        when(maintenanceDrain.getPhase()).thenReturn(MaintenanceDrain.Phase.READ_ONLY);
+        bookSearchIndex.rebuild();
+        verify(bookRepository, never()).streamAllTexts();
+
+        when(maintenanceDrain.getPhase()).thenReturn(MaintenanceDrain.Phase.ACCEPTING);
+        bookSearchIndex.rebuild();
+        assertEquals(List.of(4L), search("recipes"));
+    }
+}
@@ -0,0 +1,99 @@
+package info.touret.bookstore.spring.book.service;
+
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveTimeLimiterTest {
+
+    private final TimeLimiterRegistry timeLimiterRegistry = TimeLimiterRegistry.ofDefaults();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AdaptiveTimeLimiter createTimeLimiter(boolean enabled, long minTimeoutInMs, int windowSize, int minSamples) {
+        // p90, twice the latency, at most 2 seconds
+        return new AdaptiveTimeLimiter(enabled, 90, 2, minTimeoutInMs, 2, windowSize, minSamples, timeLimiterRegistry, meterRegistry);
+    }
+
+    private static void recordInMs(AdaptiveTimeLimiter timeLimiter, long... latenciesInMs) {
+        for (var latencyInMs : latenciesInMs) {
+            timeLimiter.record(TimeUnit.MILLISECONDS.toNanos(latencyInMs));
+        }
+    }
+
+    private Duration slowNumbersTimeout() {
+        return timeLimiterRegistry.timeLimiter("slowNumbers").getTimeLimiterConfig().getTimeoutDuration();
+    }
+
+    @Test
+    void should_apply_the_maximum_timeout_while_the_window_is_empty() {
+        var timeLimiter = createTimeLimiter(true, 10, 100, 10);
+        timeLimiter.update();
+        assertEquals(2_000, timeLimiter.getTimeoutInMs());
+        assertEquals(Duration.ofSeconds(2), slowNumbersTimeout());
+        assertEquals(2_000, meterRegistry.get("booknumbers.api.timeout").gauge().value());
+    }
+
+    @Test
+    void should_wait_for_enough_samples() {
+        var timeLimiter = createTimeLimiter(true, 10, 100, 10);
+        recordInMs(timeLimiter, 10, 10, 10, 10, 10, 10, 10, 10, 10);
+        timeLimiter.update();
+        assertEquals(2_000, timeLimiter.getTimeoutInMs());
+
+        recordInMs(timeLimiter, 10);
+        timeLimiter.update();
+        assertEquals(20, timeLimiter.getTimeoutInMs());
+    }
+
+    @Test
+    void should_apply_the_percentile_of_the_latencies_times_the_multiplier() {
+        var timeLimiter = createTimeLimiter(true, 10, 100, 10);
+        for (long latencyInMs = 100; latencyInMs >= 1; latencyInMs--) {
+            recordInMs(timeLimiter, latencyInMs);
+        }
+        timeLimiter.update();
+        // p90 of 1..100 ms: 90 ms
+        assertEquals(180, timeLimiter.getTimeoutInMs());
+        assertEquals(Duration.ofMillis(180), slowNumbersTimeout());
+    }
+
+    @Test
+    void should_only_keep_the_last_latencies() {
+        var timeLimiter = createTimeLimiter(true, 10, 10, 10);
+        recordInMs(timeLimiter, 500, 500, 500, 500, 500, 500, 500, 500, 500, 500);
+        timeLimiter.update();
+        assertEquals(1_000, timeLimiter.getTimeoutInMs());
+
+        recordInMs(timeLimiter, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30);
+        timeLimiter.update();
+        assertEquals(60, timeLimiter.getTimeoutInMs());
+        assertEquals(Duration.ofMillis(60), slowNumbersTimeout());
+    }
+
+    @Test
+    void should_keep_the_timeout_within_the_bounds() {
+        var timeLimiter = createTimeLimiter(true, 50, 10, 10);
+        recordInMs(timeLimiter, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        timeLimiter.update();
+        assertEquals(50, timeLimiter.getTimeoutInMs());
+
+        recordInMs(timeLimiter, 5_000, 5_000, 5_000, 5_000, 5_000, 5_000, 5_000, 5_000, 5_000, 5_000);
+        timeLimiter.update();
+        assertEquals(2_000, timeLimiter.getTimeoutInMs());
+        assertEquals(Duration.ofSeconds(2), slowNumbersTimeout());
+    }
+
+    @Test
+    void should_apply_the_maximum_timeout_when_disabled() {
+        var timeLimiter = createTimeLimiter(false, 10, 10, 10);
+        recordInMs(timeLimiter, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10);
+        timeLimiter.update();
+        assertEquals(2_000, timeLimiter.getTimeoutInMs());
+        assertEquals(Duration.ofSeconds(2), slowNumbersTimeout());
+    }
+}
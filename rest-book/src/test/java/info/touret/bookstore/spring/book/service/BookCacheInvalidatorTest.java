@@ -0,0 +1,74 @@
+package info.touret.bookstore.spring.book.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BookCacheInvalidatorTest {
+
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(BookCacheInvalidator.BOOKS_CACHE);
+    // Without broadcast, neither the data source nor the JDBC template is used
+    private final BookCacheInvalidator bookCacheInvalidator = new BookCacheInvalidator(cacheManager, null, null, false, 100);
+    private final Cache cache = cacheManager.getCache(BookCacheInvalidator.BOOKS_CACHE);
+
+    @AfterEach
+    void tearDown() {
+        bookCacheInvalidator.shutdown();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void should_evict_the_book_right_away_without_transaction() {
+        cache.put(1L, "book 1");
+        cache.put(2L, "book 2");
+        bookCacheInvalidator.invalidate(1L);
+        assertNull(cache.get(1L));
+        assertNotNull(cache.get(2L));
+    }
+
+    @Test
+    void should_evict_again_after_the_commit() {
+        TransactionSynchronizationManager.initSynchronization();
+        cache.put(1L, "book 1");
+        bookCacheInvalidator.invalidate(List.of(1L));
+        assertNull(cache.get(1L));
+
+        // A reader loads the previous version before the commit
+        cache.put(1L, "stale book 1");
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void should_evict_again_after_a_delay() throws InterruptedException {
+        cache.put(1L, "book 1");
+        bookCacheInvalidator.invalidate(1L);
+
+        // A reader which loaded the previous version before the commit puts it after the eviction
+        cache.put(1L, "stale book 1");
+        assertNotNull(cache.get(1L));
+        for (int attempt = 0; attempt < 50 && cache.get(1L) != null; attempt++) {
+            Thread.sleep(20);
+        }
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void should_clear_the_whole_cache() {
+        cache.put(1L, "book 1");
+        cache.put(2L, "book 2");
+        bookCacheInvalidator.invalidateAll();
+        assertNull(cache.get(1L));
+        assertNull(cache.get(2L));
+    }
+}
@@ -0,0 +1,120 @@
+package info.touret.bookstore.spring.book.service;
+
+import info.touret.bookstore.spring.book.repository.BookRepository;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookIdIndexTest {
+
+    @Test
+    void should_add_ids_only_once() {
+        var set = new BookIdIndex.LongHashSet();
+        set.add(1L);
+        set.add(1L);
+        set.add(17L);
+        assertEquals(2, set.size());
+        assertTrue(set.contains(1L));
+        assertTrue(set.contains(17L));
+        assertFalse(set.contains(2L));
+    }
+
+    @Test
+    void should_refuse_non_positive_ids() {
+        var set = new BookIdIndex.LongHashSet();
+        assertThrows(IllegalArgumentException.class, () -> set.add(0L));
+        assertThrows(IllegalArgumentException.class, () -> set.add(-1L));
+    }
+
+    @Test
+    void should_keep_all_ids_when_growing_and_shrinking() {
+        var set = new BookIdIndex.LongHashSet();
+        LongStream.rangeClosed(1, 10_000).forEach(set::add);
+        assertEquals(10_000, set.size());
+        LongStream.rangeClosed(1, 10_000).forEach(id -> assertTrue(set.contains(id)));
+        // Removes 9 IDs out of 10: the table shrinks
+        LongStream.rangeClosed(1, 10_000).filter(id -> id % 10 != 0).forEach(set::remove);
+        assertEquals(1_000, set.size());
+        LongStream.rangeClosed(1, 10_000).forEach(id -> assertEquals(id % 10 == 0, set.contains(id)));
+    }
+
+    @Test
+    void should_find_the_remaining_ids_after_removals() {
+        var set = new BookIdIndex.LongHashSet();
+        // 8 IDs in 16 slots: the clusters are long, a wrong backward shift would break their probe sequences
+        LongStream.rangeClosed(1, 8).forEach(set::add);
+        set.remove(3L);
+        set.remove(5L);
+        set.remove(42L);
+        assertEquals(6, set.size());
+        LongStream.rangeClosed(1, 8).forEach(id -> assertEquals(id != 3L && id != 5L, set.contains(id)));
+    }
+
+    @Test
+    void should_pick_every_id_at_random() {
+        var set = new BookIdIndex.LongHashSet();
+        assertTrue(set.pickRandom().isEmpty());
+        LongStream.rangeClosed(1, 5).forEach(set::add);
+        var picked = new HashSet<Long>();
+        for (int i = 0; i < 1_000; i++) {
+            picked.add(set.pickRandom().orElseThrow());
+        }
+        assertEquals(5, picked.size());
+    }
+
+    @Test
+    void should_keep_changes_made_during_a_reload() {
+        var bookRepository = mock(BookRepository.class);
+        var index = new BookIdIndex(bookRepository, mock(MaintenanceDrain.class), new SimpleMeterRegistry());
+        index.add(1L);
+        index.add(2L);
+        // The book 3 is registered and the book 2 deleted while the IDs are streamed
+        when(bookRepository.streamAllIds()).thenReturn(Stream.of(1L, 2L).peek(id -> {
+            if (id == 2L) {
+                index.add(3L);
+                index.remove(2L);
+            }
+        }));
+
+        index.reload();
+
+        assertEquals(2, index.size());
+        var picked = new HashSet<Long>();
+        for (int i = 0; i < 1_000; i++) {
+            picked.add(index.pickRandom().orElseThrow());
+        }
+        assertEquals(Set.of(1L, 3L), picked);
+    }
+
+    @Test
+    void should_reconcile_only_while_accepting_the_requests() {
+        var bookRepository = mock(BookRepository.class);
+        var maintenanceDrain = mock(MaintenanceDrain.class);
+        var index = new BookIdIndex(bookRepository, maintenanceDrain, new SimpleMeterRegistry());
+        when(bookRepository.count()).thenReturn(2L);
+        when(bookRepository.streamAllIds()).thenReturn(Stream.of(1L, 2L));
+
+        when(maintenanceDrain.getPhase()).thenReturn(MaintenanceDrain.Phase.READ_ONLY);
+        index.reconcile();
+        verify(bookRepository, never()).count();
+        assertEquals(0, index.size());
+
+        when(maintenanceDrain.getPhase()).thenReturn(MaintenanceDrain.Phase.ACCEPTING);
+        index.reconcile();
+        assertEquals(2, index.size());
+    }
+}
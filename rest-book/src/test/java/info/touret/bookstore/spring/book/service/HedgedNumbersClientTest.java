@@ -0,0 +1,130 @@
+package info.touret.bookstore.spring.book.service;
+
+import info.touret.bookstore.spring.book.dto.IsbnNumbers;
+import info.touret.bookstore.spring.book.exception.ApiCallTimeoutException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HedgedNumbersClientTest {
+
+    private static final String FIRST_INSTANCE_URL = "http://numbers-1/isbns";
+    private static final String SECOND_INSTANCE_URL = "http://numbers-2/isbns";
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final AdaptiveTimeLimiter timeLimiter = mock(AdaptiveTimeLimiter.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private HedgedNumbersClient hedgedNumbersClient;
+
+    private HedgedNumbersClient createClient(long hedgingDelayInMs, double budgetPercent, long timeoutInMs) {
+        when(timeLimiter.getTimeoutInMs()).thenReturn(timeoutInMs);
+        return new HedgedNumbersClient(restTemplate, timeLimiter, List.of(FIRST_INSTANCE_URL, SECOND_INSTANCE_URL), hedgingDelayInMs, budgetPercent, 4, false, meterRegistry);
+    }
+
+    private static IsbnNumbers createIsbnNumbers(String isbn13) {
+        var isbnNumbers = new IsbnNumbers();
+        isbnNumbers.setIsbn13(isbn13);
+        return isbnNumbers;
+    }
+
+    private void answerFast(String url, String isbn13) {
+        when(restTemplate.getForEntity(url, IsbnNumbers.class)).thenReturn(ResponseEntity.ok(createIsbnNumbers(isbn13)));
+    }
+
+    private void answerSlowly(String url, String isbn13) {
+        when(restTemplate.getForEntity(url, IsbnNumbers.class)).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(2_000);
+            } catch (InterruptedException e) {
+                cancelled.countDown();
+                throw e;
+            }
+            return ResponseEntity.ok(createIsbnNumbers(isbn13));
+        });
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hedgedNumbersClient.shutdown();
+    }
+
+    @Test
+    void should_not_hedge_a_fast_request() {
+        hedgedNumbersClient = createClient(500, 100, 5_000);
+        answerFast(FIRST_INSTANCE_URL, "9780451524935");
+
+        assertEquals("9780451524935", hedgedNumbersClient.get("", IsbnNumbers.class).getIsbn13());
+        verify(restTemplate, never()).getForEntity(SECOND_INSTANCE_URL, IsbnNumbers.class);
+        assertEquals(0, count("booknumbers.api.hedges"));
+    }
+
+    @Test
+    void should_hedge_a_slow_request_after_the_delay_and_cancel_it() throws Exception {
+        hedgedNumbersClient = createClient(200, 100, 5_000);
+        answerSlowly(FIRST_INSTANCE_URL, "9780451524935");
+        answerFast(SECOND_INSTANCE_URL, "9780140817744");
+
+        var start = System.nanoTime();
+        assertEquals("9780140817744", hedgedNumbersClient.get("", IsbnNumbers.class).getIsbn13());
+        var elapsedInMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedInMs >= 200 && elapsedInMs < 2_000, "answered after " + elapsedInMs + " ms");
+        assertEquals(1, count("booknumbers.api.hedges"));
+        assertEquals(1, count("booknumbers.api.hedges.won"));
+        assertTrue(cancelled.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void should_hedge_a_failed_request_right_away() {
+        hedgedNumbersClient = createClient(2_000, 100, 5_000);
+        when(restTemplate.getForEntity(FIRST_INSTANCE_URL, IsbnNumbers.class)).thenThrow(new ResourceAccessException("Connection refused"));
+        answerFast(SECOND_INSTANCE_URL, "9780140817744");
+
+        var start = System.nanoTime();
+        assertEquals("9780140817744", hedgedNumbersClient.get("", IsbnNumbers.class).getIsbn13());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+        assertEquals(1, count("booknumbers.api.hedges.won"));
+    }
+
+    @Test
+    void should_not_hedge_beyond_the_budget() {
+        hedgedNumbersClient = createClient(2_000, 0, 5_000);
+        when(restTemplate.getForEntity(FIRST_INSTANCE_URL, IsbnNumbers.class)).thenThrow(new ResourceAccessException("Connection refused"));
+        answerFast(SECOND_INSTANCE_URL, "9780140817744");
+
+        assertThrows(ResourceAccessException.class, () -> hedgedNumbersClient.get("", IsbnNumbers.class));
+        verify(restTemplate, never()).getForEntity(SECOND_INSTANCE_URL, IsbnNumbers.class);
+        assertEquals(1, count("booknumbers.api.hedges.denied"));
+    }
+
+    @Test
+    void should_give_up_when_no_instance_answers_within_the_timeout() throws Exception {
+        hedgedNumbersClient = createClient(100, 100, 300);
+        answerSlowly(FIRST_INSTANCE_URL, "9780451524935");
+        answerSlowly(SECOND_INSTANCE_URL, "9780140817744");
+
+        assertThrows(ApiCallTimeoutException.class, () -> hedgedNumbersClient.get("", IsbnNumbers.class));
+        assertEquals(1, count("booknumbers.api.hedges"));
+        verify(timeLimiter).record(TimeUnit.MILLISECONDS.toNanos(300));
+        assertTrue(cancelled.await(1, TimeUnit.SECONDS));
+    }
+}
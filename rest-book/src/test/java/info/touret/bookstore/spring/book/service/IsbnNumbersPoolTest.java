@@ -0,0 +1,154 @@
+package info.touret.bookstore.spring.book.service;
+
+import info.touret.bookstore.spring.book.dto.IsbnNumbers;
+import info.touret.bookstore.spring.maintenance.service.MaintenanceDrain;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IsbnNumbersPoolTest {
+
+    private static final String ISBN_SERVICE_URL = "http://localhost:8081/isbns";
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final CircuitBreakerFactory<?, ?> circuitBreakerFactory = mock(CircuitBreakerFactory.class);
+    private final MaintenanceDrain maintenanceDrain = mock(MaintenanceDrain.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private IsbnNumbersPool isbnNumbersPool;
+
+    private IsbnNumbersPool createPool(boolean enabled, int capacity, int lowWaterMark) {
+        return new IsbnNumbersPool(restTemplate, circuitBreakerFactory, ISBN_SERVICE_URL, enabled, capacity, lowWaterMark, 2, 60_000, maintenanceDrain, meterRegistry);
+    }
+
+    private static IsbnNumbers createIsbnNumbers() {
+        var isbnNumbers = new IsbnNumbers();
+        isbnNumbers.setIsbn10("0451524934");
+        isbnNumbers.setIsbn13("9780451524935");
+        return isbnNumbers;
+    }
+
+    private double poolSize() {
+        return meterRegistry.get("booknumbers.pool.size").gauge().value();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int attempt = 0; attempt < 100 && !condition.getAsBoolean(); attempt++) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Closed circuit breaker: the call is run in place, its failures go to the fallback
+        var circuitBreaker = mock(CircuitBreaker.class);
+        when(circuitBreaker.run(any(), any())).thenAnswer(invocation -> {
+            Supplier<?> toRun = invocation.getArgument(0);
+            Function<Throwable, ?> fallback = invocation.getArgument(1);
+            try {
+                return toRun.get();
+            } catch (RuntimeException e) {
+                return fallback.apply(e);
+            }
+        });
+        when(circuitBreakerFactory.create("slowNumbers")).thenReturn(circuitBreaker);
+        when(maintenanceDrain.getPhase()).thenReturn(MaintenanceDrain.Phase.ACCEPTING);
+    }
+
+    @AfterEach
+    void tearDown() {
+        isbnNumbersPool.shutdown();
+    }
+
+    @Test
+    void should_not_call_the_numbers_api_when_disabled() {
+        isbnNumbersPool = createPool(false, 10, 5);
+        isbnNumbersPool.fill();
+        assertTrue(isbnNumbersPool.take().isEmpty());
+        verify(restTemplate, never()).getForEntity(ISBN_SERVICE_URL, IsbnNumbers.class);
+    }
+
+    @Test
+    void should_fill_the_pool_up_to_its_capacity() throws InterruptedException {
+        when(restTemplate.getForEntity(ISBN_SERVICE_URL, IsbnNumbers.class)).thenReturn(ResponseEntity.ok(createIsbnNumbers()));
+        isbnNumbersPool = createPool(true, 10, 5);
+        isbnNumbersPool.fill();
+        await(() -> poolSize() == 10);
+        verify(restTemplate, times(10)).getForEntity(ISBN_SERVICE_URL, IsbnNumbers.class);
+    }
+
+    @Test
+    void should_refill_only_below_the_low_water_mark() throws InterruptedException {
+        when(restTemplate.getForEntity(ISBN_SERVICE_URL, IsbnNumbers.class)).thenReturn(ResponseEntity.ok(createIsbnNumbers()));
+        isbnNumbersPool = createPool(true, 10, 5);
+        isbnNumbersPool.fill();
+        await(() -> poolSize() == 10);
+
+        // 10 -> 5: still at the low-water mark, no refill
+        for (int i = 0; i < 5; i++) {
+            assertTrue(isbnNumbersPool.take().isPresent());
+        }
+        Thread.sleep(100);
+        assertEquals(5, poolSize());
+        verify(restTemplate, times(10)).getForEntity(ISBN_SERVICE_URL, IsbnNumbers.class);
+
+        // 5 -> 4: below the mark, the pool is filled up again
+        assertTrue(isbnNumbersPool.take().isPresent());
+        await(() -> poolSize() == 10);
+        verify(restTemplate, times(16)).getForEntity(ISBN_SERVICE_URL, IsbnNumbers.class);
+        assertEquals(0, meterRegistry.get("booknumbers.pool.misses").counter().count());
+    }
+
+    @Test
+    void should_suspend_the_refill_when_the_numbers_api_fails() throws InterruptedException {
+        when(restTemplate.getForEntity(ISBN_SERVICE_URL, IsbnNumbers.class)).thenThrow(new ResourceAccessException("Connection refused"));
+        isbnNumbersPool = createPool(true, 1, 1);
+        isbnNumbersPool.fill();
+        await(() -> numbersApiCalls() == 1);
+
+        // The pool is empty: a miss, but the refill stays suspended during the backoff
+        assertTrue(isbnNumbersPool.take().isEmpty());
+        Thread.sleep(100);
+        assertEquals(1, numbersApiCalls());
+        assertEquals(1, meterRegistry.get("booknumbers.pool.misses").counter().count());
+    }
+
+    @Test
+    void should_not_refill_the_pool_during_a_maintenance() throws InterruptedException {
+        when(restTemplate.getForEntity(ISBN_SERVICE_URL, IsbnNumbers.class)).thenReturn(ResponseEntity.ok(createIsbnNumbers()));
+        when(maintenanceDrain.getPhase()).thenReturn(MaintenanceDrain.Phase.READ_ONLY);
+        isbnNumbersPool = createPool(true, 10, 5);
+        isbnNumbersPool.fill();
+        assertTrue(isbnNumbersPool.take().isEmpty());
+        Thread.sleep(100);
+        assertEquals(0, numbersApiCalls());
+
+        when(maintenanceDrain.getPhase()).thenReturn(MaintenanceDrain.Phase.ACCEPTING);
+        assertTrue(isbnNumbersPool.take().isEmpty());
+        await(() -> poolSize() == 10);
+    }
+
+    private long numbersApiCalls() {
+        return mockingDetails(restTemplate).getInvocations().size();
+    }
+}
@@ -0,0 +1,87 @@
+package info.touret.bookstore.spring.limit.filter;
+
+import info.touret.bookstore.spring.GlobalExceptionHandler;
+import info.touret.bookstore.spring.limit.service.AdaptiveConcurrencyLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimitFilterTest {
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter = mock(AdaptiveConcurrencyLimiter.class);
+    private AnnotationConfigApplicationContext context;
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        // Resolves the exceptions with the handlers of the application
+        context = new AnnotationConfigApplicationContext(GlobalExceptionHandler.class);
+        var exceptionResolver = new ExceptionHandlerExceptionResolver();
+        exceptionResolver.setApplicationContext(context);
+        exceptionResolver.setMessageConverters(List.of(new MappingJackson2HttpMessageConverter()));
+        exceptionResolver.afterPropertiesSet();
+        concurrencyLimitFilter = new ConcurrencyLimitFilter(concurrencyLimiter, "/v1", exceptionResolver);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void should_reject_a_request_beyond_the_limit() throws Exception {
+        when(concurrencyLimiter.tryAcquire()).thenReturn(false);
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain();
+
+        concurrencyLimitFilter.doFilter(new MockHttpServletRequest("GET", "/v1/books/100"), response, chain);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertNull(chain.getRequest());
+        verify(concurrencyLimiter, never()).release(anyLong(), eq(true));
+    }
+
+    @Test
+    void should_process_a_request_within_the_limit_and_release_its_slot() throws Exception {
+        when(concurrencyLimiter.tryAcquire()).thenReturn(true);
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain();
+
+        concurrencyLimitFilter.doFilter(new MockHttpServletRequest("GET", "/v1/books/100"), response, chain);
+
+        assertNotNull(chain.getRequest());
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        verify(concurrencyLimiter).release(anyLong(), eq(true));
+    }
+
+    @Test
+    void should_not_limit_the_export_and_the_other_apis() throws Exception {
+        for (var uri : List.of("/v1/books/export", "/v1/maintenance")) {
+            var chain = new MockFilterChain();
+            concurrencyLimitFilter.doFilter(new MockHttpServletRequest("GET", uri), new MockHttpServletResponse(), chain);
+            assertNotNull(chain.getRequest());
+        }
+        verify(concurrencyLimiter, never()).tryAcquire();
+    }
+}
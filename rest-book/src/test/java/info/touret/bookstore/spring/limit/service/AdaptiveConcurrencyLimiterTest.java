@@ -0,0 +1,108 @@
+package info.touret.bookstore.spring.limit.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST_RTT = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW_RTT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AdaptiveConcurrencyLimiter createLimiter(boolean enabled, int initialLimit, int minLimit, int maxLimit) {
+        // Every window is closed as soon as it has enough samples
+        return new AdaptiveConcurrencyLimiter(enabled, initialLimit, minLimit, maxLimit, 0, 0.2, meterRegistry);
+    }
+
+    /**
+     * Feeds a window of samples: <code>concurrency</code> requests are processed at the same time, until the window is closed
+     */
+    private static void runWindow(AdaptiveConcurrencyLimiter limiter, int concurrency, long rttInNs) {
+        for (int samples = 0; samples < 10; samples += concurrency) {
+            for (int request = 0; request < concurrency; request++) {
+                assertTrue(limiter.tryAcquire());
+            }
+            for (int request = 0; request < concurrency; request++) {
+                limiter.release(rttInNs, true);
+            }
+        }
+    }
+
+    private static void runWindows(AdaptiveConcurrencyLimiter limiter, int windows, long rttInNs) {
+        for (int window = 0; window < windows; window++) {
+            runWindow(limiter, (int) limiter.getLimit(), rttInNs);
+        }
+    }
+
+    @Test
+    void should_raise_the_limit_up_to_the_maximum_while_the_latency_is_stable() {
+        var limiter = createLimiter(true, 20, 5, 200);
+        runWindows(limiter, 10, FAST_RTT);
+        assertTrue(limiter.getLimit() > 20);
+        runWindows(limiter, 500, FAST_RTT);
+        assertEquals(200, limiter.getLimit());
+    }
+
+    @Test
+    void should_lower_the_limit_when_the_latency_increases() {
+        var limiter = createLimiter(true, 20, 5, 200);
+        runWindows(limiter, 20, FAST_RTT);
+        var limit = limiter.getLimit();
+        runWindows(limiter, 5, SLOW_RTT);
+        assertTrue(limiter.getLimit() < limit, limiter.getLimit() + " should be lower than " + limit);
+    }
+
+    @Test
+    void should_decay_the_limit_towards_the_used_concurrency_and_raise_it_back() {
+        var limiter = createLimiter(true, 100, 1, 200);
+        for (int window = 0; window < 100; window++) {
+            runWindow(limiter, 2, FAST_RTT);
+        }
+        assertEquals(4, limiter.getLimit(), 0.5);
+
+        runWindows(limiter, 500, FAST_RTT);
+        assertEquals(200, limiter.getLimit());
+    }
+
+    @Test
+    void should_keep_the_limit_within_the_bounds() {
+        assertEquals(200, createLimiter(true, 1000, 5, 200).getLimit());
+        var limiter = createLimiter(true, 1, 5, 200);
+        assertEquals(5, limiter.getLimit());
+        for (int window = 0; window < 100; window++) {
+            runWindow(limiter, 1, FAST_RTT);
+        }
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void should_reject_the_requests_beyond_the_limit() {
+        var limiter = createLimiter(true, 5, 5, 200);
+        for (int request = 0; request < 5; request++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, meterRegistry.get("books.concurrency.rejections").counter().count());
+        assertEquals(5, meterRegistry.get("books.concurrency.in_flight").gauge().value());
+
+        limiter.release(FAST_RTT, true);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void should_only_count_the_requests_when_disabled() {
+        var limiter = createLimiter(false, 5, 5, 200);
+        for (int window = 0; window < 10; window++) {
+            runWindow(limiter, 20, SLOW_RTT);
+        }
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, meterRegistry.get("books.concurrency.rejections").counter().count());
+    }
+}
@@ -0,0 +1,8 @@
+truncate table book
+insert into book (id,title,isbn_13,isbn_10,author,year_of_publication,nb_of_pages,rank) values (100,'la case de l oncle tom','1234567899123','1234567890','Harriet Beecher Stowe',1852,613,4)
+insert into book (id,title,isbn_13,isbn_10,author,year_of_publication,nb_of_pages,rank) values (101,'Animal Farm','9780451526342','0451526341','George Orwell',1945,112,8)
+insert into book (id,title,isbn_13,isbn_10,author,year_of_publication,nb_of_pages,rank) values (105,'1984','9780451524935','0451524934','George Orwell',1949,328,9)
+insert into book (id,title,isbn_13,isbn_10,author,year_of_publication,nb_of_pages,rank) values (110,'Homage to Catalonia','9780156421171','0156421178','George Orwell',1938,232,7)
+insert into book (id,title,isbn_13,isbn_10,author,year_of_publication,nb_of_pages,rank) values (111,'Dracula','9780486411095','048641109X','Bram Stoker',1897,418,6)
+insert into book (id,title,isbn_13,isbn_10,author,year_of_publication,nb_of_pages,rank) values (200,'Frankenstein','9780486282114','0486282112','Mary Shelley',1818,166,7)
+insert into book (id,title,isbn_13,isbn_10,author,year_of_publication,nb_of_pages,rank) values (300,'Burmese Days','9780156148504','0156148501','George Orwell',1934,300,6)
@@ -0,0 +1,2 @@
+insert into book (id,title,author,year_of_publication,nb_of_pages,rank,price) select x, 'Book ' || x, 'Author ' || mod(x, 1000), 1000 + mod(x, 800), 100 + mod(x, 500), mod(x, 100), mod(x, 1000) + 0.99 from system_range(1000, 10999)
+analyze
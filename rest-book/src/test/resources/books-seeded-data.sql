@@ -0,0 +1,2 @@
+truncate table book
+insert into book (id,title,author,year_of_publication,nb_of_pages,rank,price) select x, 'Book ' || x, 'Author ' || mod(x, 100), 1900 + mod(x, 100), 100 + mod(x, 500), mod(x, 10), 9.99 from system_range(1, 1100)
@@ -2,10 +2,12 @@ package info.touret.bookstore.spring.number;
 
 import info.touret.bookstore.spring.number.exception.ISBNExecutionException;
 import info.touret.bookstore.spring.number.generated.dto.APIErrorDto;
+import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 import java.util.concurrent.TimeoutException;
 
@@ -27,6 +29,18 @@ public class GlobalExceptionHandler {
         return apiErrorDto;
     }
 
+    /**
+     * Indicates that the request parameters are not valid (e.g., too many book numbers requested)
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler({ConstraintViolationException.class, HandlerMethodValidationException.class})
+    public APIErrorDto badRequest() {
+        APIErrorDto apiErrorDto = new APIErrorDto();
+        apiErrorDto.setCode(HttpStatus.BAD_REQUEST.value());
+        apiErrorDto.setReason("Invalid request");
+        return apiErrorDto;
+    }
+
     /**
      * Any other exception
      */
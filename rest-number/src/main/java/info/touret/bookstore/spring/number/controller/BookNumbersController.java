@@ -8,6 +8,7 @@ import io.micrometer.core.annotation.Timed;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
@@ -44,5 +45,20 @@ public class BookNumbersController implements IsbnsApi {
         }
     }
 
-
+    /**
+     * Gets several ISBN numbers in one call. The generation delay is paid once for the whole batch.
+     *
+     * @param count the number of book numbers to generate
+     * @return The ISBN numbers
+     * @see BookNumbersService#createBookNumbersBatchAsync(int)
+     */
+    @Override
+    @SuppressWarnings("java:S2142")
+    public ResponseEntity<List<BookNumbersDto>> generateBookNumbersBatch(Integer count) {
+        try {
+            return ResponseEntity.ok(bookNumbersService.createBookNumbersBatchAsync(count).get());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new ISBNExecutionException(e);
+        }
+    }
 }
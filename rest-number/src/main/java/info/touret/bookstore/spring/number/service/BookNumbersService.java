@@ -6,20 +6,29 @@ import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.random.RandomGeneratorFactory;
+import java.util.stream.Stream;
 
 @Service
 public class BookNumbersService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BookNumbersService.class);
 
+    /**
+     * Runs the generations. It is backed by virtual threads if <code>spring.threads.virtual.enabled</code> is set, by a thread pool otherwise.
+     * The common fork join pool is not used: its few threads would be blocked by the generation delay.
+     */
+    private final AsyncTaskExecutor taskExecutor;
 
     @Value("${number.separator:false}")
     private boolean separator;
@@ -27,6 +36,10 @@ public class BookNumbersService {
     @Value("${time.to.sleep:15}")
     private int timeToSleep;
 
+    public BookNumbersService(@Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
     @PostConstruct
     public void postConstruct() {
         LOGGER.info("JJS => timeToSleep= {}", timeToSleep);
@@ -41,12 +54,34 @@ public class BookNumbersService {
      */
     @TimeLimiter(name = "book-numbers", fallbackMethod = "generateBookNumbersFallBack")
     public CompletableFuture<BookNumbersDto> createBookNumbersAsync() {
-        return CompletableFuture.supplyAsync(this::createBookNumbers);
+        return CompletableFuture.supplyAsync(this::createBookNumbers, taskExecutor);
+    }
+
+    /**
+     * Just a wrapper to the {@link #createBookNumbers(int)} method for applying Timeout handling with Resilience4J
+     * If there is a timeout calling it, the method {@link #generateBookNumbersBatchFallBack(int, TimeoutException)} is called
+     *
+     * @param count the number of book numbers to generate
+     * @return The BookNumbers DTOs asynchronously
+     */
+    @TimeLimiter(name = "book-numbers", fallbackMethod = "generateBookNumbersBatchFallBack")
+    public CompletableFuture<List<BookNumbersDto>> createBookNumbersBatchAsync(int count) {
+        return CompletableFuture.supplyAsync(() -> createBookNumbers(count), taskExecutor);
     }
 
-    @SuppressWarnings("java:S2142")
     public BookNumbersDto createBookNumbers() {
-        LOGGER.info("Generating book numbers, sleeping {} msec", timeToSleep);
+        return createBookNumbers(1).getFirst();
+    }
+
+    /**
+     * Generates several book numbers. The generation delay (<code>time.to.sleep</code>) is applied once for the whole batch.
+     *
+     * @param count the number of book numbers to generate
+     * @return the book numbers
+     */
+    @SuppressWarnings("java:S2142")
+    public List<BookNumbersDto> createBookNumbers(int count) {
+        LOGGER.info("Generating {} book numbers, sleeping {} msec", count, timeToSleep);
 
         try {
             if (timeToSleep != 0)
@@ -57,6 +92,10 @@ public class BookNumbersService {
 
         var randomGenerator = RandomGeneratorFactory.getDefault().create();
         var random = Random.from(randomGenerator);
+        return Stream.generate(() -> generateBookNumbers(random)).limit(count).toList();
+    }
+
+    private BookNumbersDto generateBookNumbers(Random random) {
         BookNumbersDto bookNumbers = new BookNumbersDto();
         bookNumbers.setIsbn10(String.valueOf(random.nextLong(1_000_000_000,9_999_999_999L)));
         bookNumbers.setIsbn13(String.valueOf(random.nextLong(1000_000_000_000L,9999_999_999_999L)));
@@ -76,4 +115,16 @@ public class BookNumbersService {
         LOGGER.error(e.getMessage(), e);
         return CompletableFuture.failedFuture(e);
     }
+
+    /**
+     * Fallback method of the batch generation
+     *
+     * @param count the number of book numbers which were requested
+     * @param e     The handled exception
+     * @return failedFuture
+     */
+    public CompletableFuture<List<BookNumbersDto>> generateBookNumbersBatchFallBack(int count, TimeoutException e) {
+        LOGGER.error("Cannot generate {} book numbers: {}", count, e.getMessage(), e);
+        return CompletableFuture.failedFuture(e);
+    }
 }
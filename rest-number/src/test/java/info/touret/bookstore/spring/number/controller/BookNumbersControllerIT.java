@@ -0,0 +1,60 @@
+package info.touret.bookstore.spring.number.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class BookNumbersControllerIT {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> BOOK_NUMBERS_LIST = new ParameterizedTypeReference<>() {
+    };
+
+    @Test
+    void should_generate_a_batch_of_book_numbers() {
+        var responseEntity = testRestTemplate.exchange("/isbns/batch?count=3", HttpMethod.GET, null, BOOK_NUMBERS_LIST);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotNull(responseEntity.getBody());
+        assertEquals(3, responseEntity.getBody().size());
+        responseEntity.getBody().forEach(bookNumbers -> {
+            assertNotNull(bookNumbers.get("isbn_10"));
+            assertNotNull(bookNumbers.get("isbn_13"));
+        });
+    }
+
+    @Test
+    void should_generate_100_book_numbers_by_default() {
+        var responseEntity = testRestTemplate.exchange("/isbns/batch", HttpMethod.GET, null, BOOK_NUMBERS_LIST);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotNull(responseEntity.getBody());
+        assertEquals(100, responseEntity.getBody().size());
+    }
+
+    @Test
+    void should_accept_the_count_bounds() {
+        assertEquals(HttpStatus.OK, testRestTemplate.getForEntity("/isbns/batch?count=1", String.class).getStatusCode());
+        assertEquals(HttpStatus.OK, testRestTemplate.getForEntity("/isbns/batch?count=5000", String.class).getStatusCode());
+    }
+
+    @Test
+    void should_refuse_a_count_out_of_bounds() {
+        for (var count : List.of(0, -1, 5001)) {
+            var responseEntity = testRestTemplate.getForEntity("/isbns/batch?count=" + count, Map.class);
+            assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+            assertEquals(400, responseEntity.getBody().get("code"));
+        }
+    }
+}